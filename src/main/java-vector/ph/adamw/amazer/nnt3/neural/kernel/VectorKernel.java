@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.neural.kernel;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+import ph.adamw.amazer.nnt3.neural.neuron.ActivationFunction;
+
+/*
+ * Dense kernel on the JDK Vector API, built by the vector profile and loaded reflectively by DenseKernels. Uses the
+ * widest doubles the CPU has, float weights are loaded at half that width so both give the same number of lanes.
+ * The sigmoid table has no good vector form so it's left to the scalar code.
+ */
+class VectorKernel implements DenseKernel {
+	private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Float> FLOATS = VectorSpecies.of(float.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+
+	private static final DoubleVector ONE = DoubleVector.broadcast(DOUBLES, 1);
+
+	@Override
+	public void multiplyAccumulate(double[] weights, double[] from, double[] to, int inputs, int outputs) {
+		final int bound = DOUBLES.loopBound(inputs);
+
+		for(int i = 0; i < outputs; i ++) {
+			final int offset = i * inputs;
+			DoubleVector acc = DoubleVector.zero(DOUBLES);
+			int k = 0;
+
+			for(; k < bound; k += DOUBLES.length()) {
+				acc = DoubleVector.fromArray(DOUBLES, weights, offset + k).fma(DoubleVector.fromArray(DOUBLES, from, k), acc);
+			}
+
+			double sum = to[i] + acc.reduceLanes(VectorOperators.ADD);
+
+			for(; k < inputs; k ++) {
+				sum += from[k] * weights[offset + k];
+			}
+
+			to[i] = sum;
+		}
+	}
+
+	@Override
+	public void multiplyAccumulate(float[] weights, double[] from, double[] to, int inputs, int outputs) {
+		final int bound = DOUBLES.loopBound(inputs);
+
+		for(int i = 0; i < outputs; i ++) {
+			final int offset = i * inputs;
+			DoubleVector acc = DoubleVector.zero(DOUBLES);
+			int k = 0;
+
+			for(; k < bound; k += DOUBLES.length()) {
+				final DoubleVector w = (DoubleVector) FloatVector.fromArray(FLOATS, weights, offset + k).convertShape(VectorOperators.F2D, DOUBLES, 0);
+				acc = w.fma(DoubleVector.fromArray(DOUBLES, from, k), acc);
+			}
+
+			double sum = to[i] + acc.reduceLanes(VectorOperators.ADD);
+
+			for(; k < inputs; k ++) {
+				sum += from[k] * weights[offset + k];
+			}
+
+			to[i] = sum;
+		}
+	}
+
+	@Override
+	public void activate(ActivationFunction function, ActivationFunction.Approximation approximation, double[] values, int len) {
+		if(approximation == ActivationFunction.Approximation.TABLE && (function == ActivationFunction.SIGMOID || function == ActivationFunction.TANH)) {
+			function.activate(values, len, approximation);
+			return;
+		}
+
+		final boolean rational = approximation == ActivationFunction.Approximation.RATIONAL;
+		final int bound = DOUBLES.loopBound(len);
+		int i = 0;
+
+		for(; i < bound; i += DOUBLES.length()) {
+			final DoubleVector v = DoubleVector.fromArray(DOUBLES, values, i);
+			final DoubleVector out;
+
+			switch (function) {
+				case SIGMOID: out = rational ? tanhRational(v.mul(0.5)).mul(0.5).add(0.5) : ONE.div(v.neg().lanewise(VectorOperators.EXP).add(1)); break;
+				case TANH: out = rational ? tanhRational(v) : v.lanewise(VectorOperators.TANH); break;
+				case RELU: out = v.max(0); break;
+				case LEAKY_RELU: out = v.max(v.mul(ActivationFunction.LEAKY_SLOPE)); break;
+				case HARD_SIGMOID: out = v.mul(0.2).add(0.5).max(0).min(1); break;
+				default: throw new IllegalStateException();
+			}
+
+			out.intoArray(values, i);
+		}
+
+		// Whatever doesn't fill a whole vector
+		for(; i < len; i ++) {
+			values[i] = function.activate(values[i], approximation);
+		}
+	}
+
+	// Same rational tanh as the scalar code, clamping the input to +-3 gives exactly +-1 there
+	private static DoubleVector tanhRational(DoubleVector v) {
+		final DoubleVector x = v.max(-3).min(3);
+		final DoubleVector sq = x.mul(x);
+
+		return x.mul(sq.add(27)).div(sq.mul(9).add(27));
+	}
+
+	@Override
+	public String toString() {
+		return "vector (" + DOUBLES + ")";
+	}
+}
@@ -25,6 +25,8 @@
 package ph.adamw.amazer;
 
 import javafx.application.Application;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -35,8 +37,11 @@ import ph.adamw.amazer.maze.Maze;
 import ph.adamw.amazer.gui.MainGuiController;
 import ph.adamw.amazer.gui.SplashGuiController;
 import ph.adamw.amazer.agent.MazerEvolution;
+import ph.adamw.amazer.nnt3.concurrent.FairWorkerPool;
+import ph.adamw.amazer.nnt3.metrics.Metrics;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 public class Amazer extends Application {
 	@Getter
@@ -45,12 +50,29 @@ public class Amazer extends Application {
 	@Getter
 	private static Stage stage;
 
+	// Every evolution loaded in this session, any number of them can be running at once
+	@Getter
+	private static final ObservableList<MazerEvolution> evolutions = FXCollections.observableArrayList();
+
+	// The evolution currently shown in the GUI, null while a new maze is being drawn
 	@Getter
 	private static MazerEvolution evolution;
 
+	// Shared by every evolution so running several at once doesn't oversubscribe the CPU
+	@Getter
+	private static final FairWorkerPool workerPool = new FairWorkerPool(Runtime.getRuntime().availableProcessors(), "Evolution Worker");
+
 	private static MainGuiController gui;
 
 	public static void main(String[] args) {
+		Metrics.registerMBean();
+
+		// e.g. -Damazer.metrics.dumpSeconds=30 to print the hot-path metrics every 30 seconds
+		final long dumpSeconds = Long.getLong("amazer.metrics.dumpSeconds", 0);
+		if(dumpSeconds > 0) {
+			Metrics.startPeriodicDump(dumpSeconds, TimeUnit.SECONDS, System.out);
+		}
+
 		Application.launch(args);
 	}
 
@@ -93,17 +115,21 @@ public class Amazer extends Application {
 	}
 
 	public static void loadEvolution(MazerEvolution evo) {
-		gui.setGridEditable(false);
-		gui.loadMaze(evo.getMaze());
+		if(!evolutions.contains(evo)) {
+			evolutions.add(evo);
+		}
 
-		evolution = evo;
+		selectEvolution(evo);
 
 		// Simple logic switch, if it's a newly created evolution we run the next (1st) gen on load, otherwise we just load the current state in
 		// i.e. if it's from disk
-		if(evo.getGeneration() != null) {
-			gui.occupyGenerationList(evo.getGeneration().getSortedCopyOfMembers());
-		} else {
+		if(evo.getGeneration() == null && !evo.isRunning()) {
 			gui.onNextGenPressed(null);
 		}
 	}
+
+	public static void selectEvolution(MazerEvolution evo) {
+		evolution = evo;
+		gui.showEvolution(evo);
+	}
 }
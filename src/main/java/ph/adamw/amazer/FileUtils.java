@@ -37,15 +37,20 @@ public class FileUtils {
 	@Getter
 	private static FileChooser evolutionChooser = new FileChooser();
 
+	@Getter
+	private static FileChooser statisticsChooser = new FileChooser();
+
 	static {
 		mazeChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("MAZE files (*.maz)", "*.maz"));
 		evolutionChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("MAZER EVOLUTION files (*.evo)", "*.evo"));
+		statisticsChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files (*.csv)", "*.csv"));
 
 		try {
 			final File dir = new File(new File(FileUtils.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getParentFile().getPath());
 
 			mazeChooser.setInitialDirectory(dir);
 			evolutionChooser.setInitialDirectory(dir);
+			statisticsChooser.setInitialDirectory(dir);
 		} catch (URISyntaxException e) {
 			e.printStackTrace();
 		}
@@ -70,6 +75,11 @@ public class FileUtils {
 		return true;
 	}
 
+	/**
+	 * Reads back an object written by writeObjectToFile, or null if the file is missing or unreadable. Files saved by
+	 * a version of a_mazer whose classes have since changed shape can't be migrated, so those throw an
+	 * OutdatedFileException instead that callers can show to the user as it is.
+	 */
 	public static <T> T readObjectFromFile(File file) {
 		if(!file.exists()) {
 			return null;
@@ -77,19 +87,22 @@ public class FileUtils {
 
 		T obj = null;
 
-		try {
-			FileInputStream in = new FileInputStream(file);
-			ObjectInputStream ois = new ObjectInputStream(in);
-
+		try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
 			// Unsafe cast usage to avoid creating wrapper methods for every class I want to read/write to
 			// - this shouldn't be an issue regardless
 			obj = (T) ois.readObject();
-
-			ois.close();
+		} catch(InvalidClassException | ClassNotFoundException e) {
+			throw new OutdatedFileException(file, e);
 		} catch(Exception e) {
 			e.printStackTrace();
 		}
 
 		return obj;
 	}
+
+	public static class OutdatedFileException extends RuntimeException {
+		private OutdatedFileException(File file, Exception cause) {
+			super(file.getName() + " was saved by an older version of a_mazer and can't be opened by this one. It will need to be made again with this version.", cause);
+		}
+	}
 }
@@ -24,75 +24,262 @@
 
 package ph.adamw.amazer.agent;
 
-import com.sun.istack.internal.Nullable;
 import lombok.Getter;
 import lombok.Setter;
+import ph.adamw.amazer.nnt3.concurrent.ForkedTask;
+import ph.adamw.amazer.nnt3.metrics.Counter;
+import ph.adamw.amazer.nnt3.metrics.Metrics;
 import ph.adamw.amazer.nnt3.neural.Agent;
 import ph.adamw.amazer.nnt3.neural.NeuralNetSettings;
+import ph.adamw.amazer.nnt3.neural.PopulationStore;
 import ph.adamw.amazer.nnt3.neural.neuron.ActivationFunction;
 import ph.adamw.amazer.agent.entity.EntityDirection;
 import ph.adamw.amazer.agent.entity.MazerEntity;
+import ph.adamw.amazer.maze.Maze;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public class MazerAgent extends Agent {
+	private static final long serialVersionUID = 1L;
+
 	@Setter
 	@Getter
 	private transient MazerEntity entity;
 
+	@Setter
+	private transient PopulationHeatmap heatmap;
+
+	// Evaluated alongside the entity's maze when set, fitness then becomes the mean normalised distance over all of them
+	@Setter
+	private transient List<Maze> extraMazes;
+
 	private static final int CYCLE_MULTIPLIER = 6;
 
+	private static final Counter CYCLES = Metrics.counter("mazer.simulation.cycles");
+	private static final Counter COLLISIONS = Metrics.counter("mazer.simulation.collisions");
+	private static final Counter GOALS_REACHED = Metrics.counter("mazer.simulation.goalsReached");
+	private static final Counter NETWORK_EVALUATIONS = Metrics.counter("nnt3.network.evaluations");
+
 	public static final int INPUTS = 5;
 	public static final int OUTPUTS = 4;
-	public static final ActivationFunction ACTIVATION_FUNCTION = ActivationFunction.getSigmoid();
+	public static final ActivationFunction ACTIVATION_FUNCTION = ActivationFunction.SIGMOID;
 
 	@Getter
 	private final List<String> familyTree = new ArrayList<>();
 
+	@Getter
+	private Trajectory trajectory;
+
+	private boolean reachedGoal = false;
+
+	// Kept between episodes and, when the agent is recycled, between generations. One set for the primary maze and one
+	// for each extra maze since those run at the same time.
+	private transient EpisodeBuffers primaryBuffers;
+	private transient EpisodeBuffers[] extraBuffers;
+
 	public MazerAgent(NeuralNetSettings settings, @Nullable MazerAgent parent, String name) {
-		super(settings, parent, name);
+		this(settings, parent, name, null);
+	}
+
+	public MazerAgent(NeuralNetSettings settings, @Nullable MazerAgent parent, String name, @Nullable PopulationStore store) {
+		this(settings, parent, null, name, store);
+	}
+
+	// The family tree only follows the first parent
+	public MazerAgent(NeuralNetSettings settings, @Nullable MazerAgent parent, @Nullable MazerAgent otherParent, String name, @Nullable PopulationStore store) {
+		super(settings, parent, otherParent, name, store);
+
+		if(parent != null) {
+			familyTree.addAll(parent.familyTree);
+			familyTree.add(parent.getThreadName());
+		}
+	}
 
+	/**
+	 * Makes this agent a new child of the given parents, reusing its network, entity and episode buffers. Only for agents
+	 * that have finished and aren't parents of the generation being made, see Agent.reuse.
+	 */
+	public MazerAgent recycle(@Nullable MazerAgent parent, @Nullable MazerAgent otherParent, String name, @Nullable PopulationStore store) {
+		reuse(parent, otherParent, name, store);
+
+		familyTree.clear();
 		if(parent != null) {
 			familyTree.addAll(parent.familyTree);
 			familyTree.add(parent.getThreadName());
 		}
+
+		trajectory = null;
+		reachedGoal = false;
+		entity.reset();
+
+		return this;
 	}
 
 	@Override
 	protected double evaluateFitness() {
-		final int maxCycles = ((int) Math.sqrt(entity.getMaze().getHeight() * entity.getMaze().getWidth())) * CYCLE_MULTIPLIER;
+		final List<Maze> extras = extraMazes;
 
-		int cyclesUsed = 0;
+		if(primaryBuffers == null || primaryBuffers.entity != entity) {
+			primaryBuffers = new EpisodeBuffers(entity);
+		}
+
+		if(extras == null || extras.isEmpty()) {
+			final Episode episode = runEpisode(primaryBuffers, true);
+
+			entity.reset();
+			reachedGoal = episode.reachedGoal();
+			return episode.endDistance;
+		}
+
+		if(extraBuffers == null || extraBuffers.length != extras.size()) {
+			extraBuffers = new EpisodeBuffers[extras.size()];
+		}
+
+		/*
+		 * The extra mazes are forked onto the executor the generation runs on, so they take the same workers and fair
+		 * share as every agent rather than threads of their own, while this task runs the primary maze. Each has its own
+		 * entity and network state so the only shared data are the weights and the mazes' tables, both read-only here.
+		 * Thread-per-agent runs have no executor and just run them here after the primary.
+		 */
+		final Executor executor = getExecutor();
+		final List<ForkedTask<Episode>> forked = new ArrayList<>(extras.size());
+
+		for(int i = 0; i < extras.size(); i ++) {
+			if(extraBuffers[i] == null || extraBuffers[i].entity.getMaze() != extras.get(i)) {
+				extraBuffers[i] = new EpisodeBuffers(new MazerEntity(extras.get(i)));
+			}
+
+			if(executor != null) {
+				final EpisodeBuffers buffers = extraBuffers[i];
+				forked.add(ForkedTask.fork(() -> runEpisode(buffers, false), executor));
+			}
+		}
+
+		final Episode primary = runEpisode(primaryBuffers, true);
+		entity.reset();
+
+		double total = primary.normalisedDistance();
+		boolean all = primary.reachedGoal();
 
-		while(cyclesUsed < maxCycles && !(entity.getCurrentCol() == entity.getMaze().getGoal().getCol() && entity.getCurrentRow() == entity.getMaze().getGoal().getRow())) {
-			final List<Double> inputs = new ArrayList<>();
+		for(int i = 0; i < extras.size(); i ++) {
+			final Episode episode = executor != null ? forked.get(i).join() : runEpisode(extraBuffers[i], false);
 
+			total += episode.normalisedDistance();
+			all &= episode.reachedGoal();
+		}
+
+		reachedGoal = all;
+		return total / (extras.size() + 1);
+	}
+
+	private Episode runEpisode(EpisodeBuffers buffers, boolean primary) {
+		final MazerEntity entity = buffers.entity;
+		final Maze maze = entity.getMaze();
+		final int maxCycles = ((int) Math.sqrt(maze.getHeight() * maze.getWidth())) * CYCLE_MULTIPLIER;
+		final double[] inputs = buffers.inputs;
+
+		// Every episode starts from a fresh network state, so recurrent layers only remember this episode
+		entity.reset();
+		final double[][] state = buffers.state;
+		for(double[] layer : state) {
+			Arrays.fill(layer, 0);
+		}
+
+		final Episode episode = new Episode();
+		episode.startDistance = maze.getOptimalDistanceToGoal(entity.getCurrentCol(), entity.getCurrentRow());
+
+		final Trajectory path = primary ? new Trajectory(entity.getCurrentCol(), entity.getCurrentRow(), maxCycles) : null;
+
+		int cyclesUsed = 0;
+		int collisions = 0;
+
+		while(cyclesUsed < maxCycles && !(entity.getCurrentCol() == maze.getGoal().getCol() && entity.getCurrentRow() == maze.getGoal().getRow())) {
 			// 4-directional inputs
 			for(EntityDirection dir : EntityDirection.VALUES) {
-				inputs.add((double) entity.getMaze().getDistanceToNextObstacle(entity.getCurrentCol(), entity.getCurrentRow(), dir));
+				inputs[dir.ordinal()] = maze.getDistanceToNextObstacle(entity.getCurrentCol(), entity.getCurrentRow(), dir);
 			}
 
-			inputs.add(MazerUtils.bearing(entity.getCurrentCol(), entity.getCurrentRow(), entity.getMaze().getGoal()));
+			inputs[EntityDirection.VALUES.length] = MazerUtils.bearing(entity.getCurrentCol(), entity.getCurrentRow(), maze.getGoal());
 
-			entity.move(evaluate(inputs.stream().mapToDouble(i -> i).toArray()));
+			final EntityDirection moved = entity.move(evaluate(inputs, state));
+
+			// Collisions leave the entity where it is so they don't need to be replayed
+			if(moved == null) {
+				collisions ++;
+			} else if(path != null) {
+				path.add(moved);
+			}
 
 			cyclesUsed ++;
+		}
+
+		CYCLES.add(cyclesUsed);
+		COLLISIONS.add(collisions);
+
+		// Smaller fitness is better, 0 is perfect i.e. agent reach the goal
+		episode.endDistance = maze.getOptimalDistanceToGoal(entity.getCurrentCol(), entity.getCurrentRow());
+
+		if(episode.reachedGoal()) {
+			GOALS_REACHED.increment();
+		}
 
-			final int interval = entity.getInterval();
-			if(interval > 0) {
-				try {
-					Thread.sleep(interval);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
+		if(primary) {
+			path.trim();
+			trajectory = path;
+
+			if(heatmap != null) {
+				heatmap.record(path);
 			}
+
+			addEvaluations(cyclesUsed);
+		} else {
+			// Only the primary episode touches the agent itself, the others may be on another worker so they report
+			// their cycles through the counter
+			NETWORK_EVALUATIONS.add(cyclesUsed);
 		}
 
+		return episode;
+	}
 
-		// Smaller fitness is better, 0 is perfect i.e. agent reach the goal
-		int cache = entity.getMaze().getOptimalDistanceToGoal(entity.getCurrentCol(), entity.getCurrentRow());
-		entity.reset();
-		return cache;
+	@Override
+	public boolean hasReachedGoal() {
+		return reachedGoal;
+	}
+
+	private class EpisodeBuffers {
+		private final MazerEntity entity;
+		private final double[][] state = newState();
+		private final double[] inputs = new double[INPUTS];
+
+		private EpisodeBuffers(MazerEntity entity) {
+			this.entity = entity;
+		}
+	}
+
+	private static class Episode {
+		private int startDistance;
+		private int endDistance;
+
+		private boolean reachedGoal() {
+			return endDistance == 0;
+		}
+
+		// Fraction of the start distance still left, so mazes of different sizes weigh the same. A maze where the start
+		// can't reach the goal can't be scored so it counts as no progress.
+		private double normalisedDistance() {
+			if(startDistance == 0) {
+				return 0;
+			}
+
+			if(startDistance == Integer.MAX_VALUE || endDistance == Integer.MAX_VALUE) {
+				return 1;
+			}
+
+			return (double) endDistance / startDistance;
+		}
 	}
 }
@@ -25,55 +25,174 @@
 package ph.adamw.amazer.agent;
 
 import lombok.Getter;
+import lombok.Setter;
 import ph.adamw.amazer.maze.Maze;
 import ph.adamw.amazer.nnt3.Evolution;
 import ph.adamw.amazer.nnt3.Generation;
 import ph.adamw.amazer.nnt3.neural.NeuralNetSettings;
+import ph.adamw.amazer.nnt3.neural.PopulationStore;
+import ph.adamw.amazer.nnt3.neural.genetics.GeneticOperators;
 import ph.adamw.amazer.agent.entity.MazerEntity;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class MazerEvolution extends Evolution<MazerAgent> {
+	private static final long serialVersionUID = 1L;
+
 	private final NeuralNetSettings currentSettings;
 
 	@Getter
 	private final Maze maze;
+
+	// Every agent is also scored on these so it can't just learn the one layout, empty for the usual single maze runs
+	@Getter
+	private final List<Maze> extraMazes;
 	private final int generationSize;
 
 	private int offlineNameCount = 0;
 
+	// Batch runs turn this off to avoid a web request per generation
+	@Setter
+	private boolean onlineNames = true;
+
+	// Only allocated while enabled, takes effect from the next generation
+	@Getter
+	private transient volatile PopulationHeatmap heatmap;
+
+	@Setter
+	private transient volatile boolean heatmapEnabled = false;
+
+	// Only used with off-heap storage, made on the first generation after starting or loading since it isn't saved
+	private transient PopulationStore store;
+
+	/*
+	 * Batch runs turn this on so agents are recycled rather than reallocated every generation. Agents are free once
+	 * they're neither the current parents nor still being shown, which for the GUI could be any old generation.
+	 */
+	@Setter
+	private boolean recycleAgents = false;
+
+	// The last two generations made, the older is free once the newer's children are being made
+	private transient List<MazerAgent> previousAgents;
+	private transient List<MazerAgent> olderAgents;
+
+	// generationCount when populate was last called, seeing it again means that generation was thrown away
+	private transient int populatedGeneration;
+
 	public MazerEvolution(Maze maze, NeuralNetSettings currentSettings, int generationSize) {
-		this.maze = maze;
+		this(Collections.singletonList(maze), currentSettings, generationSize);
+	}
+
+	/**
+	 * Creates an evolution whose agents are scored on all of the given mazes at once.
+	 * @param mazes The mazes to train on, the first is the one shown in the GUI and recorded for playback
+	 */
+	public MazerEvolution(List<Maze> mazes, NeuralNetSettings currentSettings, int generationSize) {
+		if(mazes.isEmpty()) {
+			throw new IllegalArgumentException("An evolution needs at least one maze!");
+		}
+
+		this.maze = mazes.get(0);
+		this.extraMazes = new ArrayList<>(mazes.subList(1, mazes.size()));
 		this.currentSettings = currentSettings;
 		this.generationSize = generationSize;
 	}
 
 	@Override
 	protected Generation<MazerAgent> populate(Generation<MazerAgent> generation) {
-		final String[] names = getRandomNames(generationSize);
+		final String[] names = onlineNames ? getRandomNames(generationSize) : null;
+		heatmap = heatmapEnabled ? new PopulationHeatmap(maze.getWidth(), maze.getHeight()) : null;
+
+		// A cancelled generation is never counted, so it's made again in its place
+		final boolean repeated = populatedGeneration == generationCount;
+		populatedGeneration = generationCount;
+
+		if(currentSettings.getStorage() == NeuralNetSettings.Storage.OFF_HEAP) {
+			if(store == null) {
+				store = new PopulationStore(currentSettings, generationSize);
+				store.nextGeneration();
+			} else if(repeated) {
+				store.restartGeneration();
+			} else {
+				store.nextGeneration();
+			}
+		}
+
+		final List<MazerAgent> free = recycleAgents ? takeFreeAgents(repeated) : Collections.emptyList();
+		final List<MazerAgent> made = new ArrayList<>(generationSize);
 
 		for(int i = 0; i < generationSize; i ++) {
 			final MazerAgent parent = getNextParent();
+			final MazerAgent otherParent = currentSettings.getCrossover() == GeneticOperators.Crossover.NONE ? null : getNextParent();
 
-			final MazerAgent agent = new MazerAgent(
-					currentSettings,
-					parent,
-					names == null ? "Agent " + offlineNameCount : names[i]
-			);
+			final String name = names == null ? "Agent " + offlineNameCount : names[i];
+			final MazerAgent agent;
+
+			if(free.isEmpty()) {
+				agent = new MazerAgent(currentSettings, parent, otherParent, name, store);
+				agent.setEntity(new MazerEntity(maze));
+			} else {
+				agent = free.remove(free.size() - 1).recycle(parent, otherParent, name, store);
+			}
 
-			agent.setEntity(new MazerEntity(maze));
+			agent.setHeatmap(heatmap);
+			agent.setExtraMazes(extraMazes);
 
 			generation.add(agent);
+			made.add(agent);
 
 			offlineNameCount ++;
 		}
 
+		if(recycleAgents) {
+			previousAgents = made;
+		}
+
 		return generation;
 	}
 
+	// Agents that can be recycled into the generation about to be made, the last made generation moves down to older.
+	// A thrown away generation is just dropped since its agents may still be finishing off after being cancelled.
+	private List<MazerAgent> takeFreeAgents(boolean repeated) {
+		final List<MazerAgent> free = repeated ? null : olderAgents;
+
+		if(!repeated) {
+			olderAgents = previousAgents;
+		}
+
+		previousAgents = null;
+		return free == null ? new ArrayList<>() : free;
+	}
+
+	@Override
+	protected void onRunStart() {
+		maze.beginRun();
+
+		for(Maze extra : extraMazes) {
+			extra.beginRun();
+		}
+	}
+
+	@Override
+	protected void onRunEnd() {
+		maze.endRun();
+
+		for(Maze extra : extraMazes) {
+			extra.endRun();
+		}
+	}
+
+	@Override
+	protected String describeSettings() {
+		return currentSettings + ", generationSize=" + generationSize + ", mazes=" + (extraMazes.size() + 1);
+	}
+
 	private static String[] getRandomNames(int size) {
 		final String[] ret = new String[size];
 
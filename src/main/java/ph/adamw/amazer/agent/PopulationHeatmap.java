@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.agent;
+
+import lombok.Getter;
+import ph.adamw.amazer.agent.entity.EntityDirection;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Counts how often each cell was visited and where agents finished across a whole generation. Agent threads write to
+ * one of several stripes picked by thread id so they rarely contend, readers sum the stripes when they take a snapshot.
+ */
+public class PopulationHeatmap {
+	private static final int STRIPES = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1) * 2);
+
+	@Getter
+	private final int width;
+
+	@Getter
+	private final int height;
+
+	private final AtomicIntegerArray[] visits = new AtomicIntegerArray[STRIPES];
+	private final AtomicIntegerArray[] ends = new AtomicIntegerArray[STRIPES];
+
+	private final LongAdder recorded = new LongAdder();
+
+	public PopulationHeatmap(int width, int height) {
+		this.width = width;
+		this.height = height;
+
+		for(int i = 0; i < STRIPES; i ++) {
+			visits[i] = new AtomicIntegerArray(width * height);
+			ends[i] = new AtomicIntegerArray(width * height);
+		}
+	}
+
+	// Called once per agent after its run rather than per step, so the evaluation loop itself is untouched
+	void record(Trajectory trajectory) {
+		final int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+		final AtomicIntegerArray v = visits[stripe];
+
+		int col = trajectory.getStartCol();
+		int row = trajectory.getStartRow();
+		v.incrementAndGet(col * height + row);
+
+		for(int i = 0; i < trajectory.getLength(); i ++) {
+			final EntityDirection dir = trajectory.get(i);
+			col += dir.getX();
+			row += dir.getY();
+			v.incrementAndGet(col * height + row);
+		}
+
+		ends[stripe].incrementAndGet(col * height + row);
+		recorded.increment();
+	}
+
+	/**
+	 * Sums every stripe into the given arrays, indexed by col * height + row.
+	 * @return The amount of agents that had been recorded when the snapshot started
+	 */
+	public long snapshot(int[] visitsOut, int[] endsOut) {
+		final long count = recorded.sum();
+
+		for(int i = 0; i < width * height; i ++) {
+			int v = 0;
+			int e = 0;
+
+			for(int j = 0; j < STRIPES; j ++) {
+				v += visits[j].get(i);
+				e += ends[j].get(i);
+			}
+
+			visitsOut[i] = v;
+			endsOut[i] = e;
+		}
+
+		return count;
+	}
+
+	public long getRecorded() {
+		return recorded.sum();
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.agent;
+
+import lombok.Getter;
+import ph.adamw.amazer.agent.entity.EntityDirection;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/*
+ * Compact record of every successful move an agent made during evaluation, each move is packed into 2 bits
+ * (the ordinal of its EntityDirection) so a full run costs a quarter of a byte per step.
+ */
+public class Trajectory implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Getter
+	private final int startCol;
+
+	@Getter
+	private final int startRow;
+
+	@Getter
+	private int length = 0;
+
+	private byte[] moves;
+
+	Trajectory(int startCol, int startRow, int capacity) {
+		this.startCol = startCol;
+		this.startRow = startRow;
+		this.moves = new byte[(capacity + 3) / 4];
+	}
+
+	void add(EntityDirection dir) {
+		final int index = length >> 2;
+
+		if(index >= moves.length) {
+			moves = Arrays.copyOf(moves, Math.max(1, moves.length * 2));
+		}
+
+		moves[index] |= dir.ordinal() << ((length & 3) << 1);
+		length ++;
+	}
+
+	public EntityDirection get(int i) {
+		if(i < 0 || i >= length) {
+			throw new IndexOutOfBoundsException("Move " + i + " is outside of a trajectory of length " + length + "!");
+		}
+
+		return EntityDirection.get((moves[i >> 2] >> ((i & 3) << 1)) & 3);
+	}
+
+	// Drops the unused capacity once the run has finished, it's held for the lifetime of the agent
+	void trim() {
+		moves = Arrays.copyOf(moves, (length + 3) / 4);
+	}
+}
@@ -83,10 +83,6 @@ public class MazerEntity {
 		resetPosition();
 	}
 
-	public int getInterval() {
-		return 0;
-	}
-
 	private void resetPosition() {
 		final Cell c = maze.getStart();
 		currentCol = c.getCol();
@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.experiment;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class ExperimentResult {
+	static final String CSV_HEADER = "maze,hiddenLayersAmount,hiddenLayerSizes,mutationRate,generationSize,solved,generations,timeToSolveMillis,totalMillis,agentsPerSecond,bestFitness";
+
+	private final ExperimentConfig config;
+
+	private final boolean solved;
+
+	// Generations run, i.e. the generation the goal was first reached in if it was solved
+	private final int generations;
+
+	// -1 if it was never solved
+	private final long timeToSolveMillis;
+	private final long totalMillis;
+
+	private final double agentsPerSecond;
+	private final double bestFitness;
+
+	String toCsv() {
+		return config.getMazeName() + "," + config.getSettings().getHiddenLayersAmount() + "," + joinSizes(config.getSettings().getHiddenLayerSizes())
+				+ "," + config.getSettings().getMutationRate() + "," + config.getGenerationSize() + "," + solved + "," + generations
+				+ "," + timeToSolveMillis + "," + totalMillis + "," + agentsPerSecond + "," + bestFitness;
+	}
+
+	// Semicolons so per-layer sizes stay one CSV column
+	private static String joinSizes(int[] sizes) {
+		final StringBuilder sb = new StringBuilder();
+
+		for(int i = 0; i < sizes.length; i ++) {
+			sb.append(i == 0 ? "" : ";").append(sizes[i]);
+		}
+
+		return sb.toString();
+	}
+}
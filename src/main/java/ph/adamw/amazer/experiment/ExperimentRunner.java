@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.experiment;
+
+import ph.adamw.amazer.FileUtils;
+import ph.adamw.amazer.agent.MazerAgent;
+import ph.adamw.amazer.agent.MazerEvolution;
+import ph.adamw.amazer.maze.Maze;
+import ph.adamw.amazer.nnt3.concurrent.FairWorkerPool;
+import ph.adamw.amazer.nnt3.neural.NeuralNetSettings;
+import ph.adamw.amazer.nnt3.stats.GenerationStats;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a batch of evolutions, one per {@link ExperimentConfig}, several at a time. All of their agents are evaluated on
+ * one shared {@link FairWorkerPool} so the machine is never oversubscribed and no configuration hogs the workers.
+ * Each evolution runs until an agent reaches the goal or maxGenerations is hit.
+ */
+public class ExperimentRunner {
+	private final List<ExperimentConfig> configs;
+	private final int maxGenerations;
+	private final int workerThreads;
+	private final int concurrentEvolutions;
+
+	public ExperimentRunner(List<ExperimentConfig> configs, int maxGenerations, int workerThreads, int concurrentEvolutions) {
+		this.configs = configs;
+		this.maxGenerations = maxGenerations;
+		this.workerThreads = workerThreads;
+		this.concurrentEvolutions = concurrentEvolutions;
+	}
+
+	public static List<ExperimentConfig> grid(Map<String, Maze> mazes, int[] hiddenLayersAmounts, int[] hiddenLayersSizes, double[] mutationRates, int[] generationSizes) {
+		final List<ExperimentConfig> ret = new ArrayList<>();
+
+		for(Map.Entry<String, Maze> maze : mazes.entrySet()) {
+			for(int amount : hiddenLayersAmounts) {
+				for(int size : hiddenLayersSizes) {
+					for(double rate : mutationRates) {
+						for(int generationSize : generationSizes) {
+							final NeuralNetSettings settings = new NeuralNetSettings(MazerAgent.INPUTS, amount, size, MazerAgent.OUTPUTS, rate, MazerAgent.ACTIVATION_FUNCTION);
+							ret.add(new ExperimentConfig(maze.getKey(), maze.getValue(), settings, generationSize));
+						}
+					}
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	public List<ExperimentResult> run() throws InterruptedException {
+		final List<ExperimentResult> ret = new ArrayList<>();
+
+		// Evolutions only drive their generations and wait on the pool so they get their own small set of threads
+		final ExecutorService drivers = Executors.newFixedThreadPool(concurrentEvolutions);
+
+		try (FairWorkerPool pool = new FairWorkerPool(workerThreads, "Experiment Worker")) {
+			final List<Future<ExperimentResult>> futures = new ArrayList<>();
+
+			for(ExperimentConfig config : configs) {
+				futures.add(drivers.submit(() -> runOne(config, pool)));
+			}
+
+			for(Future<ExperimentResult> i : futures) {
+				try {
+					ret.add(i.get());
+				} catch (ExecutionException e) {
+					e.printStackTrace();
+				}
+			}
+		} finally {
+			drivers.shutdownNow();
+		}
+
+		return ret;
+	}
+
+	private ExperimentResult runOne(ExperimentConfig config, FairWorkerPool pool) {
+		final MazerEvolution evolution = new MazerEvolution(config.getMaze(), config.getSettings(), config.getGenerationSize());
+		evolution.setOnlineNames(false);
+		evolution.setRecycleAgents(true);
+
+		final long start = System.nanoTime();
+		long agents = 0;
+		double best = Double.NaN;
+
+		try (FairWorkerPool.Client client = pool.newClient()) {
+			for(int i = 0; i < maxGenerations; i ++) {
+				evolution.run(1, client);
+
+				final List<GenerationStats> history = evolution.getHistory();
+				final GenerationStats last = history.get(history.size() - 1);
+				agents += last.getSize();
+				best = Double.isNaN(best) ? last.getMin() : Math.min(best, last.getMin());
+
+				if(last.getGoalRate() > 0) {
+					final long millis = (System.nanoTime() - start) / 1000000;
+					return new ExperimentResult(config, true, i + 1, millis, millis, agents * 1000.0 / Math.max(1, millis), best);
+				}
+			}
+		}
+
+		final long millis = (System.nanoTime() - start) / 1000000;
+		return new ExperimentResult(config, false, maxGenerations, -1, millis, agents * 1000.0 / Math.max(1, millis), best);
+	}
+
+	/**
+	 * Sweeps a default grid over the given .maz files and prints a CSV report, e.g.
+	 * java -Damazer.experiment.maxGenerations=500 ph.adamw.amazer.experiment.ExperimentRunner a.maz b.maz
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		final Map<String, Maze> mazes = new LinkedHashMap<>();
+
+		for(String i : args) {
+			final Maze maze;
+
+			try {
+				maze = FileUtils.readObjectFromFile(new File(i));
+			} catch (FileUtils.OutdatedFileException e) {
+				System.err.println(e.getMessage() + " Skipping it.");
+				continue;
+			}
+
+			if(maze == null) {
+				System.err.println("Could not read maze " + i + ", skipping it.");
+				continue;
+			}
+
+			mazes.put(new File(i).getName(), maze);
+		}
+
+		final int cores = Runtime.getRuntime().availableProcessors();
+		final List<ExperimentConfig> configs = grid(mazes, new int[] {1, 2, 4}, new int[] {4, 8}, new double[] {5, 15, 30}, new int[] {100, 500});
+
+		final ExperimentRunner runner = new ExperimentRunner(
+				configs,
+				Integer.getInteger("amazer.experiment.maxGenerations", 200),
+				Integer.getInteger("amazer.experiment.workers", cores),
+				Integer.getInteger("amazer.experiment.concurrent", Math.max(2, cores / 2))
+		);
+
+		System.out.println(ExperimentResult.CSV_HEADER);
+
+		for(ExperimentResult i : runner.run()) {
+			System.out.println(i.toCsv());
+		}
+	}
+}
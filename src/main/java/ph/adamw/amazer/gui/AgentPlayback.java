@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.gui;
+
+import javafx.animation.Animation;
+import javafx.animation.Interpolator;
+import javafx.animation.KeyFrame;
+import javafx.animation.KeyValue;
+import javafx.animation.Timeline;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.scene.paint.Color;
+import javafx.util.Duration;
+import lombok.Getter;
+import ph.adamw.amazer.agent.Trajectory;
+import ph.adamw.amazer.agent.entity.EntityDirection;
+import ph.adamw.amazer.maze.CellState;
+
+import java.util.List;
+
+/*
+ * Replays one or more recorded Trajectories on a GuiMaze at once, each agent with its own colour overlay. The timeline
+ * animates the current step from 0 to the end of the longest trajectory so scrubbing is just a jump in time and speed
+ * changes are just a change of rate.
+ */
+public class AgentPlayback {
+	private static final Duration STEP_DURATION = Duration.millis(50);
+
+	private final GuiMaze guiMaze;
+
+	// Positions are resolved up front, [agent][step], so seeking to any step is a lookup rather than a replay
+	private final int[][] cols;
+	private final int[][] rows;
+
+	private final Color[] colors;
+
+	@Getter
+	private final int length;
+
+	private final IntegerProperty step = new SimpleIntegerProperty(0);
+
+	private final Timeline timeline;
+
+	AgentPlayback(GuiMaze guiMaze, List<Trajectory> trajectories) {
+		this.guiMaze = guiMaze;
+
+		cols = new int[trajectories.size()][];
+		rows = new int[trajectories.size()][];
+		colors = new Color[trajectories.size()];
+
+		int longest = 0;
+
+		for(int i = 0; i < trajectories.size(); i ++) {
+			final Trajectory trajectory = trajectories.get(i);
+			final int len = trajectory.getLength();
+
+			cols[i] = new int[len + 1];
+			rows[i] = new int[len + 1];
+			cols[i][0] = trajectory.getStartCol();
+			rows[i][0] = trajectory.getStartRow();
+
+			for(int j = 0; j < len; j ++) {
+				final EntityDirection dir = trajectory.get(j);
+				cols[i][j + 1] = cols[i][j] + dir.getX();
+				rows[i][j + 1] = rows[i][j] + dir.getY();
+			}
+
+			// A lone agent keeps the usual entity colour, otherwise the hues are spread evenly
+			colors[i] = trajectories.size() == 1 ? CellState.ENTITY.getColor() : Color.hsb(360.0 * i / trajectories.size(), 0.85, 0.9);
+			longest = Math.max(longest, len);
+		}
+
+		length = longest;
+
+		timeline = new Timeline(new KeyFrame(STEP_DURATION.multiply(Math.max(1, length)), new KeyValue(step, length, Interpolator.LINEAR)));
+		step.addListener((observable, oldValue, newValue) -> moveEntities(oldValue.intValue(), newValue.intValue()));
+
+		drawEntities(0);
+	}
+
+	// Agents that have finished their trajectory stay on their last cell
+	private int indexAt(int agent, int s) {
+		return Math.min(s, cols[agent].length - 1);
+	}
+
+	private void moveEntities(int from, int to) {
+		// All clears are queued before any overlay so an agent moving onto a cell another just left is still drawn
+		for(int i = 0; i < cols.length; i ++) {
+			final int index = indexAt(i, from);
+			guiMaze.queueRedrawAt(cols[i][index], rows[i][index]);
+		}
+
+		drawEntities(to);
+	}
+
+	private void drawEntities(int s) {
+		// Drawn in reverse so the best agent, at index 0, is on top when several share a cell
+		for(int i = cols.length - 1; i >= 0; i --) {
+			final int index = indexAt(i, s);
+			guiMaze.queueColorAt(cols[i][index], rows[i][index], colors[i]);
+		}
+	}
+
+	public void play() {
+		timeline.playFromStart();
+	}
+
+	public void stop() {
+		timeline.stop();
+
+		for(int i = 0; i < cols.length; i ++) {
+			final int index = indexAt(i, getStep());
+			guiMaze.queueRedrawAt(cols[i][index], rows[i][index]);
+		}
+	}
+
+	public void seek(int target) {
+		final int clamped = Math.max(0, Math.min(length, target));
+		timeline.jumpTo(STEP_DURATION.multiply(clamped));
+
+		// A finished or stopped timeline won't interpolate on its own so the step is set directly
+		if(timeline.getStatus() != Animation.Status.RUNNING) {
+			step.set(clamped);
+		}
+	}
+
+	public void setRate(double rate) {
+		timeline.setRate(rate);
+	}
+
+	public int getStep() {
+		return step.get();
+	}
+
+	public ReadOnlyIntegerProperty stepProperty() {
+		return step;
+	}
+}
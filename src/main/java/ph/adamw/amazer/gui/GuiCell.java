@@ -29,7 +29,7 @@ import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.CornerRadii;
-import javafx.scene.paint.Paint;
+import javafx.scene.paint.Color;
 import lombok.Getter;
 import static ph.adamw.amazer.maze.CellState.EMPTY;
 import static ph.adamw.amazer.maze.CellState.WALL;
@@ -53,10 +53,15 @@ public class GuiCell extends BorderPane {
 	}
 
 	void drawState(CellState state) {
-		setBackground(new Background(new BackgroundFill(Paint.valueOf(state.getColor().toString()), CornerRadii.EMPTY, INSETS_2)));
+		drawColor(state.getColor());
 		setCenter(state.getText());
 	}
 
+	// Only repaints the background so any text on the cell is left alone, used for overlays
+	void drawColor(Color color) {
+		setBackground(new Background(new BackgroundFill(color, CornerRadii.EMPTY, INSETS_2)));
+	}
+
 	void setState(CellState state) {
 		cell.setState(state);
 		drawState(state);
@@ -0,0 +1,77 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.gui;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.paint.Color;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Collects cell colour changes posted from any thread and applies them to the GuiMaze once per JavaFX pulse. Changes to
+ * the same cell between two pulses are coalesced so only the latest colour is ever drawn.
+ */
+class GuiDrawQueue extends AnimationTimer {
+	private final GuiMaze guiMaze;
+
+	private final Map<Integer, Color> pending = new ConcurrentHashMap<>();
+
+	GuiDrawQueue(GuiMaze guiMaze) {
+		this.guiMaze = guiMaze;
+	}
+
+	void post(int col, int row, Color color) {
+		pending.put(pack(col, row), color);
+	}
+
+	void clear() {
+		pending.clear();
+	}
+
+	@Override
+	public void handle(long now) {
+		if(pending.isEmpty()) {
+			return;
+		}
+
+		final Iterator<Map.Entry<Integer, Color>> it = pending.entrySet().iterator();
+
+		while(it.hasNext()) {
+			final Map.Entry<Integer, Color> e = it.next();
+			final int key = e.getKey();
+
+			// Removing via the entry means a colour posted for this cell after we read it is kept for the next pulse
+			if(pending.remove(key, e.getValue())) {
+				guiMaze.drawColorAt(key >>> 16, key & 0xFFFF, e.getValue());
+			}
+		}
+	}
+
+	private static int pack(int col, int row) {
+		return (col << 16) | (row & 0xFFFF);
+	}
+}
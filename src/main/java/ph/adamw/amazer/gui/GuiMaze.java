@@ -24,19 +24,29 @@
 
 package ph.adamw.amazer.gui;
 
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.event.EventTarget;
 import javafx.geometry.HPos;
 import javafx.geometry.Insets;
 import javafx.scene.Node;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
 import lombok.Getter;
 import lombok.Setter;
 import ph.adamw.amazer.maze.Cell;
 import ph.adamw.amazer.maze.Maze;
+import ph.adamw.amazer.maze.MazeConnectivity;
 import ph.adamw.amazer.agent.MazerAgent;
-import ph.adamw.amazer.agent.entity.DrawingMazerEntity;
+import ph.adamw.amazer.agent.Trajectory;
 import ph.adamw.amazer.maze.CellState;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public class GuiMaze extends GridPane {
     @Setter
     @Getter
@@ -45,8 +55,27 @@ public class GuiMaze extends GridPane {
     private CellState dragOverrideState;
     private CellState nextStartFinish = CellState.START;
 
-    private DrawingMazerEntity entity;
-    private MazerAgent agent;
+    @Getter
+    private AgentPlayback playback;
+
+    // Indexed [col][row] so cell lookups during playback don't have to walk the scene graph
+    private GuiCell[][] cellIndex = new GuiCell[0][0];
+
+    private final GuiDrawQueue drawQueue = new GuiDrawQueue(this);
+
+    // The shown evolution's maze, wall edits on the grid are made to it in place so its agents are scored on the new
+    // layout from the next run without rebuilding it. Null while a new maze is being drawn.
+    @Getter
+    private Maze liveMaze;
+
+    // Follows every edit so the problem below is always current, even on grids too big to search after each click
+    private MazeConnectivity connectivity;
+
+    // Why the maze can't be trained on yet, null once it's valid
+    private final ReadOnlyStringWrapper problem = new ReadOnlyStringWrapper();
+
+    // Unmanaged so the grid ignores it, it's stretched over the cells in layoutChildren instead
+    private final ImageView heatmapView = new ImageView();
 
     private static final Insets INSETS_20 = new Insets(20, 20, 0, 20);
 
@@ -55,6 +84,13 @@ public class GuiMaze extends GridPane {
         setGridLinesVisible(true);
         setSize(col, row);
         setPadding(INSETS_20);
+        drawQueue.start();
+
+        heatmapView.setManaged(false);
+        heatmapView.setMouseTransparent(true);
+        heatmapView.setSmooth(false);
+        heatmapView.setVisible(false);
+        getChildren().add(heatmapView);
 
         setOnMouseReleased(event -> {
             dragOverrideState = null;
@@ -80,6 +116,7 @@ public class GuiMaze extends GridPane {
 
             if(hoveredPane.getCell().getState() == dragOverrideState && targetPane != hoveredPane) {
                 hoveredPane.switchState();
+                cellChanged(hoveredPane);
             }
         });
 
@@ -88,13 +125,19 @@ public class GuiMaze extends GridPane {
                 final GuiCell targetPane = (GuiCell) event.getTarget();
 
                 switch(event.getButton()) {
-                    case PRIMARY: targetPane.switchState(); break;
+                    case PRIMARY: targetPane.switchState(); cellChanged(targetPane); break;
                     case SECONDARY: {
+                        // An evolution's start and goal are fixed, only its walls can move
+                        if(liveMaze != null) {
+                            break;
+                        }
+
                         if(containsState(CellState.GOAL)) {
                             clearCellWithState(CellState.START);
                             clearCellWithState(CellState.GOAL);
                         } else if (targetPane.getCell().getState() == CellState.EMPTY) {
                             targetPane.setState(nextRightClickState());
+                            cellChanged(targetPane);
                         }
                     } break;
                 }
@@ -103,12 +146,55 @@ public class GuiMaze extends GridPane {
     }
 
     public void setSize(int cols, int rows) {
+        // A playback still running would keep drawing into the cells being thrown away
+        if(playback != null) {
+            playback.stop();
+            playback = null;
+        }
+
+        liveMaze = null;
+
         getRowConstraints().clear();
         getColumnConstraints().clear();
         getChildren().removeIf(node -> node instanceof GuiCell);
+        drawQueue.clear();
 
+        cellIndex = new GuiCell[cols][rows];
         addCols(cols);
         addRows(rows);
+
+        connectivity = new MazeConnectivity(cols, rows);
+        updateProblem();
+
+        heatmapView.setImage(null);
+        heatmapView.toFront();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        super.layoutChildren();
+
+        if(cellIndex.length == 0 || cellIndex[0].length == 0) {
+            return;
+        }
+
+        final GuiCell first = cellIndex[0][0];
+        final GuiCell last = cellIndex[cellIndex.length - 1][cellIndex[0].length - 1];
+
+        heatmapView.relocate(first.getLayoutX(), first.getLayoutY());
+        heatmapView.setFitWidth(last.getLayoutX() + last.getWidth() - first.getLayoutX());
+        heatmapView.setFitHeight(last.getLayoutY() + last.getHeight() - first.getLayoutY());
+    }
+
+    // Images that don't match the current grid are from an old maze and are dropped
+    void setHeatmap(Image image) {
+        if(image.getWidth() == getCols() && image.getHeight() == getRows()) {
+            heatmapView.setImage(image);
+        }
+    }
+
+    public void setHeatmapVisible(boolean visible) {
+        heatmapView.setVisible(visible);
     }
 
     public int getRows() {
@@ -120,16 +206,8 @@ public class GuiMaze extends GridPane {
     }
 
     private GuiCell getCellAt(int col, int row) {
-        for(Node i : getManagedChildren()) {
-            if(!(i instanceof GuiCell)) {
-                continue;
-            }
-
-            final Cell c = ((GuiCell) i).getCell();
-
-            if(c.getRow() == row && c.getCol() == col) {
-                return (GuiCell) i;
-            }
+        if(col >= 0 && col < cellIndex.length && row >= 0 && row < cellIndex[col].length && cellIndex[col][row] != null) {
+            return cellIndex[col][row];
         }
 
         // Relatively safe since
@@ -140,15 +218,63 @@ public class GuiMaze extends GridPane {
         getCellAt(col, row).drawState(state);
     }
 
+    void drawColorAt(int col, int row, Color color) {
+        getCellAt(col, row).drawColor(color);
+    }
+
+    // Thread-safe, the colour is drawn on the next pulse and only the latest colour queued for a cell is drawn
+    public void queueColorAt(int col, int row, Color color) {
+        drawQueue.post(col, row, color);
+    }
+
+    // Queues the colour of the cell's own state, used to clear an overlay drawn over it
+    void queueRedrawAt(int col, int row) {
+        drawQueue.post(col, row, getCellAt(col, row).getCell().getState().getColor());
+    }
+
     public void clearCellWithState(CellState state) {
     	final GuiCell d = getFirstState(state);
     	if(d != null) {
 			d.setState(CellState.EMPTY);
+			cellChanged(d);
 		}
     }
 
+    private void cellChanged(GuiCell cell) {
+        if(liveMaze != null) {
+            try {
+                liveMaze.setWall(cell.getCell().getCol(), cell.getCell().getRow(), cell.getCell().getState() == CellState.WALL);
+            } catch (IllegalStateException e) {
+                // Its evolution is running, leave the grid showing what the maze still is
+                cell.switchState();
+                return;
+            }
+        }
+
+        connectivity.update(cell.getCell().getCol(), cell.getCell().getRow(), cell.getCell().getState());
+        updateProblem();
+    }
+
+    private void updateProblem() {
+        if(!connectivity.hasStart() || !connectivity.hasGoal()) {
+            problem.set("The maze needs a start and a goal.");
+        } else if(!connectivity.isSolvable()) {
+            problem.set("The start can't reach the goal.");
+        } else {
+            problem.set(null);
+        }
+    }
+
+    public ReadOnlyStringProperty problemProperty() {
+        return problem.getReadOnlyProperty();
+    }
+
+    public String getProblem() {
+        return problem.get();
+    }
+
     public boolean isValid() {
-        return containsState(CellState.GOAL) && containsState(CellState.START);
+        return problem.get() == null;
     }
 
     public Maze asDataGrid() {
@@ -161,7 +287,8 @@ public class GuiMaze extends GridPane {
             }
         }
 
-        if(isValid()) {
+        // Unsolvable mazes can still be saved, they just can't be trained on
+        if(connectivity.hasStart() && connectivity.hasGoal()) {
             //noinspection ConstantConditions
             return new Maze(getCols(), getRows(), cells, getFirstState(CellState.START).getCell(), getFirstState(CellState.GOAL).getCell());
         }
@@ -169,6 +296,17 @@ public class GuiMaze extends GridPane {
         return null;
     }
 
+    // Shows the maze and makes wall edits on the grid to it from now on, see liveMaze
+    public void editMaze(Maze maze) {
+        loadMaze(maze);
+        liveMaze = maze;
+    }
+
+    // Stops edits going to the last maze given to editMaze, the grid keeps showing it to start a new one from
+    public void detachMaze() {
+        liveMaze = null;
+    }
+
     public void loadMaze(Maze maze) {
         setSize(maze.getWidth(), maze.getHeight());
 
@@ -177,8 +315,11 @@ public class GuiMaze extends GridPane {
         for(int i = 0; i < getCols(); i ++) {
             for(int j = 0; j < getRows(); j ++) {
                 getCellAt(i, j).setState(cells[i][j].getState());
+                connectivity.update(i, j, cells[i][j].getState());
             }
         }
+
+        updateProblem();
     }
 
     private void addRows(int rows) {
@@ -195,6 +336,7 @@ public class GuiMaze extends GridPane {
             for(int j = 0; j < panes.length; j ++) {
                 panes[j] = new GuiCell(new Cell(j, getRows() - 1, CellState.EMPTY));
                 setHalignment(panes[j], HPos.CENTER);
+                cellIndex[j][getRows() - 1] = panes[j];
             }
 
             addRow(getRows() - 1, panes);
@@ -238,17 +380,30 @@ public class GuiMaze extends GridPane {
         return ret;
     }
 
-    public void drawAgentPath(MazerAgent newAgent) {
-        if(entity == null) {
-            entity = new DrawingMazerEntity(asDataGrid(), this, 50);
+    public AgentPlayback drawAgentPath(MazerAgent agent) {
+        return drawAgentPaths(Collections.singletonList(agent));
+    }
+
+    // Plays every agent's trajectory at once, each in its own colour
+    public AgentPlayback drawAgentPaths(List<MazerAgent> agents) {
+        final List<Trajectory> trajectories = new ArrayList<>();
+
+        for(MazerAgent i : agents) {
+            if(i.getTrajectory() != null) {
+                trajectories.add(i.getTrajectory());
+            }
         }
 
-        this.agent = newAgent;
-        agent.setEntity(entity);
-        agent.start(true);
-    }
+        if(trajectories.isEmpty()) {
+            return null;
+        }
+
+        if(playback != null) {
+            playback.stop();
+        }
 
-    public boolean isReadyToDrawPath() {
-        return agent == null || agent.isDone();
+        playback = new AgentPlayback(this, trajectories);
+        playback.play();
+        return playback;
     }
 }
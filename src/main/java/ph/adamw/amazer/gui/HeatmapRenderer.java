@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.gui;
+
+import javafx.application.Platform;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import lombok.Setter;
+import ph.adamw.amazer.agent.MazerEvolution;
+import ph.adamw.amazer.agent.PopulationHeatmap;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Periodically turns the shown evolution's PopulationHeatmap into an image on its own thread and hands it to the
+ * GuiMaze, only the finished image ever touches the FX thread.
+ */
+class HeatmapRenderer {
+	private static final long INTERVAL_MILLIS = 250;
+
+	// Cold to hot, blue through to red
+	private static final int[] PALETTE = new int[256];
+
+	static {
+		for(int i = 0; i < PALETTE.length; i ++) {
+			final double t = i / 255.0;
+			PALETTE[i] = toArgb(Color.hsb(240 * (1 - t), 1, 1, 0.2 + 0.5 * t));
+		}
+	}
+
+	private static final int END_COLOR = toArgb(Color.MAGENTA.deriveColor(0, 1, 1, 0.85));
+
+	private final GuiMaze guiMaze;
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+		final Thread t = new Thread(r, "Heatmap Renderer");
+		t.setDaemon(true);
+		return t;
+	});
+
+	@Setter
+	private volatile boolean enabled = false;
+
+	// Set from the FX thread whenever the shown evolution changes, null while none is
+	@Setter
+	private volatile MazerEvolution evolution;
+
+	private PopulationHeatmap lastHeatmap;
+	private long lastRecorded = -1;
+
+	HeatmapRenderer(GuiMaze guiMaze) {
+		this.guiMaze = guiMaze;
+	}
+
+	void start() {
+		executor.scheduleWithFixedDelay(this::tick, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	private void tick() {
+		final MazerEvolution evolution = this.evolution;
+		final PopulationHeatmap heatmap = evolution == null ? null : evolution.getHeatmap();
+
+		if(!enabled || heatmap == null) {
+			return;
+		}
+
+		// Nothing new has been recorded so the last image is still accurate
+		if(heatmap == lastHeatmap && heatmap.getRecorded() == lastRecorded) {
+			return;
+		}
+
+		final int size = heatmap.getWidth() * heatmap.getHeight();
+		final int[] visits = new int[size];
+		final int[] ends = new int[size];
+
+		lastHeatmap = heatmap;
+		lastRecorded = heatmap.snapshot(visits, ends);
+
+		int maxVisits = 1;
+		for(int i : visits) {
+			maxVisits = Math.max(maxVisits, i);
+		}
+
+		final double logMax = Math.log1p(maxVisits);
+		final int[] pixels = new int[size];
+
+		for(int col = 0; col < heatmap.getWidth(); col ++) {
+			for(int row = 0; row < heatmap.getHeight(); row ++) {
+				final int i = col * heatmap.getHeight() + row;
+				final int pixel = row * heatmap.getWidth() + col;
+
+				if(ends[i] > 0) {
+					pixels[pixel] = END_COLOR;
+				} else if(visits[i] > 0) {
+					pixels[pixel] = PALETTE[(int) (255 * Math.log1p(visits[i]) / logMax)];
+				}
+			}
+		}
+
+		final WritableImage image = new WritableImage(heatmap.getWidth(), heatmap.getHeight());
+		image.getPixelWriter().setPixels(0, 0, heatmap.getWidth(), heatmap.getHeight(), PixelFormat.getIntArgbInstance(), pixels, 0, heatmap.getWidth());
+
+		Platform.runLater(() -> guiMaze.setHeatmap(image));
+	}
+
+	private static int toArgb(Color c) {
+		return ((int) Math.round(c.getOpacity() * 255) << 24)
+				| ((int) Math.round(c.getRed() * 255) << 16)
+				| ((int) Math.round(c.getGreen() * 255) << 8)
+				| (int) Math.round(c.getBlue() * 255);
+	}
+}
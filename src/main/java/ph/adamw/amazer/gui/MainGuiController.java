@@ -24,6 +24,10 @@
 
 package ph.adamw.amazer.gui;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.binding.Bindings;
 import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -32,14 +36,20 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
+import javafx.util.Duration;
+import javafx.util.StringConverter;
 import lombok.NoArgsConstructor;
 import ph.adamw.amazer.Amazer;
 import ph.adamw.amazer.FileUtils;
 import ph.adamw.amazer.maze.Maze;
 import ph.adamw.amazer.agent.MazerAgent;
 import ph.adamw.amazer.agent.MazerEvolution;
+import ph.adamw.amazer.nnt3.EvolutionProgress;
+import ph.adamw.amazer.nnt3.concurrent.FairWorkerPool;
 
 import java.io.File;
+import java.io.IOException;
+import java.text.DecimalFormat;
 import java.util.List;
 
 @NoArgsConstructor
@@ -54,7 +64,37 @@ public class MainGuiController {
 	private Button skipGenerationsButton;
 
 	@FXML
-	private ListView<MazerListEntry> mazerListView;
+	private ListView<MazerAgent> mazerListView;
+
+	@FXML
+	private Slider playbackScrubSlider;
+
+	@FXML
+	private Slider playbackSpeedSlider;
+
+	@FXML
+	private Button playTopButton;
+
+	@FXML
+	private Slider playTopSlider;
+
+	@FXML
+	private CheckBox heatmapCheckBox;
+
+	@FXML
+	private ProgressBar evolutionProgressBar;
+
+	@FXML
+	private Label evolutionProgressLabel;
+
+	@FXML
+	private Label mazeStatusLabel;
+
+	@FXML
+	private Button cancelGenerationsButton;
+
+	@FXML
+	private ComboBox<MazerEvolution> evolutionComboBox;
 
 	// -- Number Fields --;
     @FXML
@@ -77,6 +117,12 @@ public class MainGuiController {
 
 	private final GuiMaze grid = new GuiMaze(6, 6);
 
+	private static final Duration PROGRESS_POLL_INTERVAL = Duration.millis(200);
+
+	private static final DecimalFormat TWO_DP = new DecimalFormat("0.##");
+
+	private final HeatmapRenderer heatmapRenderer = new HeatmapRenderer(grid);
+
 	@FXML
 	private Slider gridRowsSlider;
 
@@ -87,11 +133,56 @@ public class MainGuiController {
 	private void initialize() {
 	    borderPane.setCenter(grid);
 
+		mazeStatusLabel.textProperty().bind(Bindings.when(grid.problemProperty().isNull()).then("Maze is solvable").otherwise(grid.problemProperty()));
+
 		final String os = System.getProperty("os.name");
 		if (os != null && os.startsWith("Mac")) {
 			menuBar.useSystemMenuBarProperty().set(true);
 		}
 
+		mazerListView.setCellFactory(view -> new MazerListEntry());
+
+		evolutionComboBox.setItems(Amazer.getEvolutions());
+		evolutionComboBox.setConverter(new StringConverter<MazerEvolution>() {
+			@Override
+			public String toString(MazerEvolution evo) {
+				if(evo == null) {
+					return "";
+				}
+
+				return "Evolution " + (Amazer.getEvolutions().indexOf(evo) + 1) + " - " + evo.getMaze().getWidth() + "x" + evo.getMaze().getHeight() + " maze";
+			}
+
+			@Override
+			public MazerEvolution fromString(String string) {
+				return null;
+			}
+		});
+		evolutionComboBox.valueProperty().addListener((observable, oldValue, newValue) -> {
+			if(newValue != null && newValue != Amazer.getEvolution()) {
+				Amazer.selectEvolution(newValue);
+			}
+		});
+
+		// Polled rather than pushed so agent threads never have to touch the FX thread
+		final Timeline progressPoller = new Timeline(new KeyFrame(PROGRESS_POLL_INTERVAL, e -> {
+			if(Amazer.getEvolution() != null && Amazer.getEvolution().isRunning()) {
+				showProgress(Amazer.getEvolution().getProgress());
+			}
+		}));
+		progressPoller.setCycleCount(Animation.INDEFINITE);
+		progressPoller.play();
+
+		heatmapCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> {
+			heatmapRenderer.setEnabled(newValue);
+			grid.setHeatmapVisible(newValue);
+
+			if(Amazer.getEvolution() != null) {
+				Amazer.getEvolution().setHeatmapEnabled(newValue);
+			}
+		});
+		heatmapRenderer.start();
+
 		skipGenerationsSlider.valueProperty().addListener(e ->
 				skipGenerationsButton.textProperty().setValue("Skip " + (int) skipGenerationsSlider.getValue() + " Generations"));
 		
@@ -100,6 +191,24 @@ public class MainGuiController {
 
 		gridRowsSlider.valueProperty().addListener((observable, oldValue, newValue) -> updateSize());
 		gridColsSlider.valueProperty().addListener((observable, oldValue, newValue) -> updateSize());
+
+		playTopSlider.valueProperty().addListener(e ->
+				playTopButton.textProperty().setValue("Play Top " + (int) playTopSlider.getValue()));
+
+		playbackScrubSlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+			final AgentPlayback playback = grid.getPlayback();
+
+			// Only seek on user input, not when the slider is following the playback
+			if(playback != null && newValue.intValue() != playback.getStep()) {
+				playback.seek(newValue.intValue());
+			}
+		});
+
+		playbackSpeedSlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+			if(grid.getPlayback() != null) {
+				grid.getPlayback().setRate(newValue.doubleValue());
+			}
+		});
 	}
 
 	@SuppressWarnings("ConstantConditions")
@@ -107,7 +216,7 @@ public class MainGuiController {
 		// Have we loaded one yet? I.e. via import
 		if(Amazer.getEvolution() == null) {
 			if (!grid.isValid()) {
-				GuiUtils.alert(Alert.AlertType.ERROR,"The current maze form is invalid.", "The maze must contain a start node, a goal node and be possible to solve.");
+				GuiUtils.alert(Alert.AlertType.ERROR,"The current maze form is invalid.", grid.getProblem());
 				return;
 			}
 
@@ -116,29 +225,138 @@ public class MainGuiController {
 			return;
 		}
 
-		gridSizeControlsBox.setDisable(true);
-		evolutionControlsBox.setDisable(true);
+		final MazerEvolution evolution = Amazer.getEvolution();
+
+		// Its walls may have been moved since it last ran
+		if(!grid.isValid()) {
+			GuiUtils.alert(Alert.AlertType.ERROR,"The current maze form is invalid.", grid.getProblem());
+			return;
+		}
+
+		// Taken now rather than once the driver thread starts so nothing can start a second run in between
+		if(!evolution.reserveRun()) {
+			return;
+		}
+
+		// Evolutions loaded from disk or created after the box was ticked need to pick it up too
+		evolution.setHeatmapEnabled(heatmapCheckBox.isSelected());
 
 		Task<Boolean> task = new Task<Boolean>() {
 			@Override
 			protected Boolean call() {
-				Amazer.getEvolution().run(amount, true);
+				// Each run gets its own queue on the shared pool so concurrent evolutions take turns
+				try (FairWorkerPool.Client client = Amazer.getWorkerPool().newClient()) {
+					evolution.run(amount, client);
+				}
+
 				return true;
 			}
 		};
 
 		task.setOnSucceeded(e -> {
-			evolutionControlsBox.setDisable(false);
+			// Another evolution may have been selected in the meantime, it'll be refreshed when it's switched back to
+			if(Amazer.getEvolution() == evolution) {
+				showEvolution(evolution);
+				showProgress(evolution.getProgress());
+			}
+		});
 
-			skipGenerationsButton.setDisable(false);
-			skipGenerationsSlider.setDisable(false);
+		// The run has stopped, so the progress poller has too since it only polls running evolutions. The last complete
+		// generation is still the current one.
+		task.setOnFailed(e -> {
+			evolution.releaseRun();
 
-			nextGenButton.setText("Run Generation " + Amazer.getEvolution().getGenerationCount());
+			if(Amazer.getEvolution() == evolution) {
+				showEvolution(evolution);
+			}
 
-			occupyGenerationList(Amazer.getEvolution().getGeneration().getSortedCopyOfMembers());
+			final Throwable error = task.getException();
+			error.printStackTrace();
+			GuiUtils.alert(Alert.AlertType.ERROR, "The evolution stopped with an error.", String.valueOf(error));
 		});
 
-		new Thread(task).start();
+		task.setOnCancelled(e -> {
+			evolution.releaseRun();
+
+			if(Amazer.getEvolution() == evolution) {
+				showEvolution(evolution);
+			}
+		});
+
+		new Thread(task, "Evolution Driver").start();
+
+		setGridEditable(false);
+		evolutionControlsBox.setDisable(true);
+		cancelGenerationsButton.setDisable(false);
+	}
+
+	// Brings the controls, maze and generation list in line with the given evolution, or back to editing if it's null
+	public void showEvolution(MazerEvolution evolution) {
+		heatmapRenderer.setEvolution(evolution);
+
+		if(evolution == null) {
+			evolutionComboBox.getSelectionModel().clearSelection();
+			grid.detachMaze();
+			setGridEditable(true);
+			gridSizeControlsBox.setDisable(false);
+			evolutionControlsBox.setDisable(false);
+			skipGenerationsButton.setDisable(true);
+			skipGenerationsSlider.setDisable(true);
+			cancelGenerationsButton.setDisable(true);
+			nextGenButton.setText("Run Generation 0");
+			mazerListView.getItems().clear();
+			evolutionProgressBar.setProgress(0);
+			evolutionProgressLabel.setText("");
+			return;
+		}
+
+		evolutionComboBox.getSelectionModel().select(evolution);
+		grid.editMaze(evolution.getMaze());
+
+		// Walls can be moved between runs, see GuiMaze.liveMaze
+		final boolean running = evolution.isRunning();
+		setGridEditable(!running);
+		gridSizeControlsBox.setDisable(true);
+		evolutionControlsBox.setDisable(running);
+		cancelGenerationsButton.setDisable(!running);
+
+		skipGenerationsButton.setDisable(evolution.getGeneration() == null);
+		skipGenerationsSlider.setDisable(evolution.getGeneration() == null);
+
+		nextGenButton.setText("Run Generation " + evolution.getGenerationCount());
+
+		// Cancelling the very first generation leaves nothing to show
+		if(evolution.getGeneration() != null) {
+			occupyGenerationList(evolution.getGeneration().getSortedCopyOfMembers());
+		} else {
+			mazerListView.getItems().clear();
+		}
+	}
+
+	private void showProgress(EvolutionProgress progress) {
+		final double perGeneration = progress.getGenerationSize() == 0 ? 0 : (double) progress.getCompletedAgents() / progress.getGenerationSize();
+		evolutionProgressBar.setProgress(progress.getTotalGenerations() == 0 ? 0 : (progress.getCompletedGenerations() + perGeneration) / progress.getTotalGenerations());
+
+		evolutionProgressLabel.setText(
+				(progress.isCancelled() ? "Cancelled at generation " : "Generation ") + progress.getCompletedGenerations() + "/" + progress.getTotalGenerations()
+				+ " · Agent " + progress.getCompletedAgents() + "/" + progress.getGenerationSize()
+				+ " · Best " + formatFitness(progress.getBestFitness())
+				+ " · Mean " + formatFitness(progress.getMeanFitness())
+				+ " · " + (int) progress.getAgentsPerSecond() + " agents/s"
+		);
+	}
+
+	private static String formatFitness(double fitness) {
+		return Double.isNaN(fitness) ? "-" : TWO_DP.format(fitness);
+	}
+
+	@FXML
+	private void onCancelGenerationsPressed(ActionEvent actionEvent) {
+		if(Amazer.getEvolution() != null) {
+			Amazer.getEvolution().cancel();
+		}
+
+		cancelGenerationsButton.setDisable(true);
 	}
 
 	public void loadMaze(Maze maze) {
@@ -146,15 +364,12 @@ public class MainGuiController {
 	}
 
 	public void occupyGenerationList(List<MazerAgent> nn) {
-        mazerListView.getItems().clear();
-
-		for(MazerAgent i : nn) {
-			mazerListView.getItems().add(mazerListView.getItems().size(), new MazerListEntry(i));
-		}
+		// A single setAll so the ListView only gets one change event for the whole generation
+		mazerListView.getItems().setAll(nn);
 	}
 
 	private void updateSize() {
-		if(!grid.isEditable()) {
+		if(!grid.isEditable() || grid.getLiveMaze() != null) {
 			GuiUtils.alert(Alert.AlertType.WARNING,"The maze is currently locked", "The maze is currently edit-locked. Please reset the program to unlock it.");
 			return;
 		}
@@ -164,15 +379,34 @@ public class MainGuiController {
 
 	@FXML
 	private void onMazerListClicked(MouseEvent mouseEvent) {
-		final MazerListEntry e = mazerListView.getSelectionModel().getSelectedItem();
+		final MazerAgent agent = mazerListView.getSelectionModel().getSelectedItem();
+
+		if(agent == null) {
+			return;
+		}
 
-		if(e == null) {
+		bindPlayback(grid.drawAgentPath(agent));
+	}
+
+	@FXML
+	private void onPlayTopPressed(ActionEvent actionEvent) {
+		if(Amazer.getEvolution() == null || Amazer.getEvolution().getGeneration() == null) {
 			return;
 		}
 
-		if(grid.isReadyToDrawPath()) {
-			grid.drawAgentPath(e.getAgent());
+		final List<MazerAgent> sorted = Amazer.getEvolution().getGeneration().getSortedCopyOfMembers();
+		bindPlayback(grid.drawAgentPaths(sorted.subList(0, Math.min(sorted.size(), (int) playTopSlider.getValue()))));
+	}
+
+	private void bindPlayback(AgentPlayback playback) {
+		if(playback == null) {
+			return;
 		}
+
+		playbackScrubSlider.setMax(playback.getLength());
+		playbackScrubSlider.setValue(0);
+		playback.setRate(playbackSpeedSlider.getValue());
+		playback.stepProperty().addListener((observable, oldValue, newValue) -> playbackScrubSlider.setValue(newValue.intValue()));
 	}
 
 	public void onNextGenPressed(ActionEvent actionEvent) {
@@ -206,7 +440,14 @@ public class MainGuiController {
 			return;
 		}
 
-		final Maze dg = FileUtils.readObjectFromFile(file);
+		final Maze dg;
+
+		try {
+			dg = FileUtils.readObjectFromFile(file);
+		} catch (FileUtils.OutdatedFileException e) {
+			GuiUtils.alert(Alert.AlertType.ERROR, "Failed to import maze.", e.getMessage());
+			return;
+		}
 
 		if(dg != null) {
 			grid.loadMaze(dg);
@@ -228,7 +469,14 @@ public class MainGuiController {
 			return;
 		}
 
-		final MazerEvolution evo = FileUtils.readObjectFromFile(file);
+		final MazerEvolution evo;
+
+		try {
+			evo = FileUtils.readObjectFromFile(file);
+		} catch (FileUtils.OutdatedFileException e) {
+			GuiUtils.alert(Alert.AlertType.ERROR, "Failed to import evolution.", e.getMessage());
+			return;
+		}
 
 		if(evo != null) {
 			Amazer.loadEvolution(evo);
@@ -237,6 +485,12 @@ public class MainGuiController {
 		}
 	}
 
+	@FXML
+	private void onNewEvolutionPressed(ActionEvent actionEvent) {
+		// Anything already running carries on in the background
+		Amazer.selectEvolution(null);
+	}
+
 	@FXML
 	private void onExportEvolutionPressed(ActionEvent actionEvent) {
 		if(Amazer.getEvolution() == null) {
@@ -244,6 +498,11 @@ public class MainGuiController {
 			return;
 		}
 
+		if(Amazer.getEvolution().isRunning()) {
+			GuiUtils.alert(Alert.AlertType.ERROR,"Cannot export evolution.", "Please wait for the evolution to finish running or cancel it before exporting.");
+			return;
+		}
+
 		final File file = FileUtils.getEvolutionChooser().showSaveDialog(Amazer.getStage());
 
 		if(file == null) {
@@ -255,6 +514,27 @@ public class MainGuiController {
 		}
 	}
 
+	@FXML
+	private void onRecordStatisticsPressed(ActionEvent actionEvent) {
+		if(Amazer.getEvolution() == null) {
+			GuiUtils.alert(Alert.AlertType.ERROR,"Cannot record statistics.", "Please create an evolution before attempting to record its statistics.");
+			return;
+		}
+
+		final File file = FileUtils.getStatisticsChooser().showSaveDialog(Amazer.getStage());
+
+		if(file == null) {
+			return;
+		}
+
+		try {
+			Amazer.getEvolution().setStatisticsFile(file);
+		} catch (IOException e) {
+			e.printStackTrace();
+			GuiUtils.alert(Alert.AlertType.ERROR,"Failed to record statistics.", "Please ensure that a_mazer has appropriate permissions to save files.");
+		}
+	}
+
 	public void setGridEditable(boolean b) {
 		grid.setEditable(b);
 	}
@@ -24,24 +24,48 @@
 
 package ph.adamw.amazer.gui;
 
+import javafx.scene.control.ListCell;
 import javafx.scene.control.Tooltip;
-import javafx.scene.text.Text;
-import lombok.Getter;
 import ph.adamw.amazer.agent.MazerAgent;
 
 import java.text.DecimalFormat;
 
-public class MazerListEntry extends Text {
-	@Getter
-	private final MazerAgent agent;
-
+/*
+ * Cell used by the generation ListView, the ListView only creates enough of these to fill the viewport and recycles
+ * them while scrolling. The ancestry tooltip is only built when it's about to be shown.
+ */
+public class MazerListEntry extends ListCell<MazerAgent> {
 	private final static DecimalFormat TWO_DP = new DecimalFormat("0.##");
 
-	public MazerListEntry(MazerAgent agent) {
-		super(formatText(agent));
+	private final Tooltip tooltip = new Tooltip();
+
+	public MazerListEntry() {
+		tooltip.setOnShowing(e -> {
+			if(getItem() != null) {
+				tooltip.setText(formatFamilyTree(getItem()));
+			}
+		});
+	}
 
-		this.agent = agent;
+	@Override
+	protected void updateItem(MazerAgent agent, boolean empty) {
+		super.updateItem(agent, empty);
+
+		if(empty || agent == null) {
+			setText(null);
+			setTooltip(null);
+			return;
+		}
+
+		setText(formatText(agent));
+		setTooltip(tooltip);
+	}
 
+	private static String formatText(MazerAgent agent) {
+		return agent.getThreadName() + " ➤ " + TWO_DP.format(agent.getFitness()) + " fit";
+	}
+
+	private static String formatFamilyTree(MazerAgent agent) {
 		final StringBuilder sb = new StringBuilder();
 		sb.append("Parents: ");
 		if(agent.getFamilyTree().size() <= 0) {
@@ -54,10 +78,6 @@ public class MazerListEntry extends Text {
 			c ++;
 		}
 
-		Tooltip.install(this, new Tooltip(sb.toString()));
-	}
-
-	private static String formatText(MazerAgent agent) {
-		return agent.getThreadName() + " ➤ " + TWO_DP.format(agent.getFitness()) + " fit";
+		return sb.toString();
 	}
 }
@@ -27,15 +27,27 @@ package ph.adamw.amazer.gui;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
+import javafx.scene.control.Alert;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.Label;
 import javafx.scene.control.Slider;
 import javafx.scene.control.TextField;
 import javafx.stage.Stage;
 import lombok.Setter;
 import ph.adamw.amazer.Amazer;
+import ph.adamw.amazer.FileUtils;
 import ph.adamw.amazer.maze.Maze;
 import ph.adamw.amazer.agent.MazerAgent;
 import ph.adamw.amazer.agent.MazerEvolution;
 import ph.adamw.amazer.nnt3.neural.NeuralNetSettings;
+import ph.adamw.amazer.nnt3.neural.genetics.GeneticOperators;
+import ph.adamw.amazer.nnt3.neural.neuron.ActivationFunction;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class SplashGuiController {
 	@FXML
@@ -58,9 +70,43 @@ public class SplashGuiController {
 	@FXML
 	private Slider generationSizeSlider;
 
+	@FXML
+	private TextField layersTextField;
+
+	@FXML
+	private CheckBox biasCheckBox;
+
+	@FXML
+	private CheckBox recurrentCheckBox;
+
+	@FXML
+	private Label trainingMazesLabel;
+
+	@FXML
+	private ChoiceBox<ActivationFunction.Approximation> approximationChoiceBox;
+
+	@FXML
+	private ChoiceBox<NeuralNetSettings.Precision> precisionChoiceBox;
+
+	@FXML
+	private ChoiceBox<NeuralNetSettings.Storage> storageChoiceBox;
+
+	@FXML
+	private ChoiceBox<GeneticOperators.Mutation> mutationChoiceBox;
+
+	@FXML
+	private ChoiceBox<GeneticOperators.Crossover> crossoverChoiceBox;
+
+	private static final String LAYER_FORMAT = "Layers are written as a comma separated list of sizes, each optionally followed by :ACTIVATION and/or :RECURRENT e.g. 16:RELU, 8:TANH:RECURRENT, 8. ";
+
+	private static final String RECURRENT = "RECURRENT";
+
 	@Setter
 	private Maze grid;
 
+	// Scored alongside the grid so agents don't just learn the one layout
+	private final List<Maze> trainingMazes = new ArrayList<>();
+
 	@FXML
 	private void initialize() {
 		//TODO Find a less ugly way of doing this (i.e. band them together into 1 componentpair)
@@ -68,23 +114,152 @@ public class SplashGuiController {
 		GuiUtils.bindIntSliderValueToTextField(hiddenLayersAmountSlider, hiddenLayersAmountTextField);
 		GuiUtils.bindIntSliderValueToTextField(mutationRateSlider, mutationRateTextField);
 		GuiUtils.bindIntSliderValueToTextField(generationSizeSlider, generationSizeTextField);
+
+		approximationChoiceBox.getItems().setAll(ActivationFunction.Approximation.values());
+		approximationChoiceBox.setValue(ActivationFunction.Approximation.EXACT);
+
+		precisionChoiceBox.getItems().setAll(NeuralNetSettings.Precision.values());
+		precisionChoiceBox.setValue(NeuralNetSettings.Precision.DOUBLE);
+
+		storageChoiceBox.getItems().setAll(NeuralNetSettings.Storage.values());
+		storageChoiceBox.setValue(NeuralNetSettings.Storage.OBJECTS);
+
+		mutationChoiceBox.getItems().setAll(GeneticOperators.Mutation.values());
+		mutationChoiceBox.setValue(GeneticOperators.Mutation.UNIFORM);
+
+		crossoverChoiceBox.getItems().setAll(GeneticOperators.Crossover.values());
+		crossoverChoiceBox.setValue(GeneticOperators.Crossover.NONE);
 	}
 
 	@FXML
 	private void confirmSettingsPressed(ActionEvent actionEvent) {
-		final NeuralNetSettings settings =
-				new NeuralNetSettings(
-						MazerAgent.INPUTS,
-						(int) hiddenLayersAmountSlider.getValue(),
-						(int) hiddenLayersSizeSlider.getValue(),
-						MazerAgent.OUTPUTS,
-						(int) mutationRateSlider.getValue(),
-						MazerAgent.ACTIVATION_FUNCTION
-				);
-
-		Amazer.loadEvolution(new MazerEvolution(grid, settings, (int) generationSizeSlider.getValue()));
+		final NeuralNetSettings settings;
+
+		try {
+			settings = buildSettings();
+		} catch (IllegalArgumentException e) {
+			GuiUtils.alert(Alert.AlertType.ERROR, "Invalid settings.", e.getMessage());
+			return;
+		}
+
+		final List<Maze> mazes = new ArrayList<>();
+		mazes.add(grid);
+		mazes.addAll(trainingMazes);
+
+		Amazer.loadEvolution(new MazerEvolution(mazes, settings, (int) generationSizeSlider.getValue()));
 
 		final Node source = (Node) actionEvent.getSource();
 		((Stage) source.getScene().getWindow()).close();
 	}
+
+	// The layer list overrides the two hidden layer sliders when it's filled in, the recurrent box applies to either
+	private NeuralNetSettings buildSettings() {
+		final String layers = layersTextField.getText() == null ? "" : layersTextField.getText().trim();
+
+		final int[] sizes;
+		final ActivationFunction[] functions;
+		final boolean[] recurrent;
+
+		if(layers.isEmpty()) {
+			sizes = new int[(int) hiddenLayersAmountSlider.getValue()];
+			Arrays.fill(sizes, (int) hiddenLayersSizeSlider.getValue());
+
+			functions = new ActivationFunction[sizes.length + 1];
+			Arrays.fill(functions, MazerAgent.ACTIVATION_FUNCTION);
+
+			recurrent = new boolean[sizes.length];
+		} else {
+			final String[] parts = layers.split(",");
+
+			sizes = new int[parts.length];
+			functions = new ActivationFunction[parts.length + 1];
+			recurrent = new boolean[parts.length];
+
+			for(int i = 0; i < parts.length; i ++) {
+				final String[] layer = parts[i].trim().split(":");
+
+				try {
+					sizes[i] = Integer.parseInt(layer[0].trim());
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException(LAYER_FORMAT + "'" + layer[0].trim() + "' is not a layer size.");
+				}
+
+				if(sizes[i] <= 0) {
+					throw new IllegalArgumentException(LAYER_FORMAT + "Layer sizes must be positive.");
+				}
+
+				functions[i] = MazerAgent.ACTIVATION_FUNCTION;
+
+				for(int j = 1; j < layer.length; j ++) {
+					final String option = layer[j].trim().toUpperCase();
+
+					if(option.equals(RECURRENT)) {
+						recurrent[i] = true;
+						continue;
+					}
+
+					try {
+						functions[i] = ActivationFunction.valueOf(option);
+					} catch (IllegalArgumentException e) {
+						throw new IllegalArgumentException(LAYER_FORMAT + "'" + layer[j].trim() + "' is not an activation function.");
+					}
+				}
+			}
+
+			// Outputs are read by picking the largest so they keep the default
+			functions[parts.length] = MazerAgent.ACTIVATION_FUNCTION;
+		}
+
+		if(recurrentCheckBox.isSelected()) {
+			if(sizes.length == 0) {
+				throw new IllegalArgumentException("Recurrent networks need at least one hidden layer.");
+			}
+
+			Arrays.fill(recurrent, true);
+		}
+
+		return NeuralNetSettings.builder()
+				.inputs(MazerAgent.INPUTS)
+				.hiddenLayerSizes(sizes)
+				.activationFunctions(functions)
+				.recurrentLayers(recurrent)
+				.outputs(MazerAgent.OUTPUTS)
+				.biased(biasCheckBox.isSelected())
+				.mutationRate((int) mutationRateSlider.getValue())
+				.mutation(mutationChoiceBox.getValue())
+				.crossover(crossoverChoiceBox.getValue())
+				.approximation(approximationChoiceBox.getValue())
+				.precision(precisionChoiceBox.getValue())
+				.storage(storageChoiceBox.getValue())
+				.build();
+	}
+
+	@FXML
+	private void onAddTrainingMazesPressed(ActionEvent actionEvent) {
+		final List<File> files = FileUtils.getMazeChooser().showOpenMultipleDialog(Amazer.getStage());
+
+		if(files == null) {
+			return;
+		}
+
+		for(File file : files) {
+			final Maze maze;
+
+			try {
+				maze = FileUtils.readObjectFromFile(file);
+			} catch (FileUtils.OutdatedFileException e) {
+				GuiUtils.alert(Alert.AlertType.ERROR, "Failed to import maze.", e.getMessage());
+				continue;
+			}
+
+			if(maze == null) {
+				GuiUtils.alert(Alert.AlertType.ERROR, "Failed to import maze.", "The maze file " + file.getName() + " may have been corrupted or a_mazer does not have the appropriate read permissions to access it.");
+				continue;
+			}
+
+			trainingMazes.add(maze);
+		}
+
+		trainingMazesLabel.setText(trainingMazes.isEmpty() ? "Current maze only" : "Current maze + " + trainingMazes.size() + " more");
+	}
 }
@@ -31,6 +31,8 @@ import java.io.Serializable;
 
 @Getter
 public class Cell implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	protected final int col;
 
 	protected final int row;
@@ -0,0 +1,257 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.maze;
+
+import ph.adamw.amazer.agent.entity.EntityDirection;
+
+import java.util.Arrays;
+
+/*
+ * Shortest distances from every cell to a maze's goal, indexed by col * height + row, with Integer.MAX_VALUE for walls
+ * and cells that can't reach it. Built once with a breadth-first search and then repaired in place when a single cell
+ * is opened or walled, so an edit only costs as much as the region whose distances actually change.
+ */
+class DistanceField {
+	static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private final Maze maze;
+	private final int width;
+	private final int height;
+
+	private final int[] distance;
+
+	// Scratch for repairs, only allocated on the first edit since most mazes are never edited
+	private int[] queue;
+	private int[] mark;
+	private long[] seeds;
+	private int epoch = 0;
+
+	DistanceField(Maze maze) {
+		this.maze = maze;
+		this.width = maze.getWidth();
+		this.height = maze.getHeight();
+		this.distance = new int[width * height];
+	}
+
+	int get(int col, int row) {
+		return distance[col * height + row];
+	}
+
+	// Breadth-first from the goal, every move costs the same so this gives the same distances Dijkstra would
+	int build() {
+		Arrays.fill(distance, UNREACHABLE);
+
+		final int[] queue = new int[width * height];
+		int head = 0;
+		int tail = 0;
+
+		final int goal = maze.getGoal().getCol() * height + maze.getGoal().getRow();
+		distance[goal] = 0;
+		queue[tail ++] = goal;
+
+		while(head < tail) {
+			final int current = queue[head ++];
+
+			for(EntityDirection dir : EntityDirection.VALUES) {
+				final int next = neighbour(current, dir);
+
+				if(next != -1 && distance[next] == UNREACHABLE) {
+					distance[next] = distance[current] + 1;
+					queue[tail ++] = next;
+				}
+			}
+		}
+
+		return tail;
+	}
+
+	// A cell that was a wall is now open, distances can only go down so they're relaxed outwards from it
+	void opened(int col, int row) {
+		ensureScratch();
+
+		final int cell = col * height + row;
+		int best = UNREACHABLE;
+
+		for(EntityDirection dir : EntityDirection.VALUES) {
+			final int n = neighbour(cell, dir);
+
+			if(n != -1 && distance[n] != UNREACHABLE) {
+				best = Math.min(best, distance[n] + 1);
+			}
+		}
+
+		if(best == UNREACHABLE) {
+			return;
+		}
+
+		distance[cell] = best;
+		queue[0] = cell;
+		relax(1, 0);
+	}
+
+	/*
+	 * A cell that was open is now a wall. Only cells that relied on it can get further away, so those are found first by
+	 * walking outwards from it level by level: a cell is affected when none of its neighbours one step closer to the goal
+	 * survived. Affected cells are then seeded from their unaffected neighbours and relaxed in order of distance.
+	 */
+	void closed(int col, int row) {
+		ensureScratch();
+
+		final int cell = col * height + row;
+		final int old = distance[cell];
+		distance[cell] = UNREACHABLE;
+
+		if(old == UNREACHABLE) {
+			return;
+		}
+
+		epoch ++;
+
+		int head = 0;
+		int tail = 0;
+		int affected = 0;
+
+		tail = pushDependants(cell, old, tail);
+
+		while(head < tail) {
+			final int current = queue[head ++];
+			final int level = distance[current];
+
+			if(hasParent(current, level)) {
+				continue;
+			}
+
+			// Affected cells are marked by going back to unreachable, which also stops them being anyone's parent
+			distance[current] = UNREACHABLE;
+			seeds[affected ++] = current;
+			tail = pushDependants(current, level, tail);
+		}
+
+		// Best distance each affected cell can get straight from the unaffected region, sorted so they join in order
+		int count = 0;
+		for(int i = 0; i < affected; i ++) {
+			final int current = (int) seeds[i];
+			int best = UNREACHABLE;
+
+			for(EntityDirection dir : EntityDirection.VALUES) {
+				final int n = neighbour(current, dir);
+
+				if(n != -1 && distance[n] != UNREACHABLE) {
+					best = Math.min(best, distance[n] + 1);
+				}
+			}
+
+			if(best != UNREACHABLE) {
+				seeds[count ++] = ((long) best << 32) | current;
+			}
+		}
+
+		Arrays.sort(seeds, 0, count);
+		relax(0, count);
+	}
+
+	/*
+	 * Breadth-first relaxation from whatever's already in the queue, merged with the first seedCount sorted seeds so
+	 * cells always leave in order of distance. Each cell's distance is then only ever set once.
+	 */
+	private void relax(int tail, int seedCount) {
+		int head = 0;
+		int seed = 0;
+
+		while(head < tail || seed < seedCount) {
+			final int current;
+
+			if(head < tail && (seed == seedCount || distance[queue[head]] <= (int) (seeds[seed] >>> 32))) {
+				current = queue[head ++];
+			} else {
+				final int cell = (int) seeds[seed];
+				final int value = (int) (seeds[seed] >>> 32);
+				seed ++;
+
+				if(value >= distance[cell]) {
+					continue;
+				}
+
+				distance[cell] = value;
+				current = cell;
+			}
+
+			for(EntityDirection dir : EntityDirection.VALUES) {
+				final int n = neighbour(current, dir);
+
+				if(n != -1 && distance[n] > distance[current] + 1) {
+					distance[n] = distance[current] + 1;
+					queue[tail ++] = n;
+				}
+			}
+		}
+	}
+
+	private boolean hasParent(int cell, int level) {
+		for(EntityDirection dir : EntityDirection.VALUES) {
+			final int n = neighbour(cell, dir);
+
+			if(n != -1 && distance[n] == level - 1) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	// Queues the neighbours whose shortest path may have gone through the given cell
+	private int pushDependants(int cell, int level, int tail) {
+		for(EntityDirection dir : EntityDirection.VALUES) {
+			final int n = neighbour(cell, dir);
+
+			if(n != -1 && distance[n] == level + 1 && mark[n] != epoch) {
+				mark[n] = epoch;
+				queue[tail ++] = n;
+			}
+		}
+
+		return tail;
+	}
+
+	// The open cell next to the given one or -1 if that's a wall or off the grid
+	private int neighbour(int cell, EntityDirection dir) {
+		final int col = cell / height + dir.getX();
+		final int row = cell % height + dir.getY();
+
+		if(col < 0 || row < 0 || col >= width || row >= height || maze.isWall(col, row)) {
+			return -1;
+		}
+
+		return col * height + row;
+	}
+
+	private void ensureScratch() {
+		if(queue == null) {
+			queue = new int[width * height];
+			mark = new int[width * height];
+			seeds = new long[width * height];
+		}
+	}
+}
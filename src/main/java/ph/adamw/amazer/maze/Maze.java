@@ -24,11 +24,9 @@
 
 package ph.adamw.amazer.maze;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import ph.adamw.amazer.agent.entity.EntityDirection;
-import ph.adamw.amazer.maze.graph.Graph;
-import ph.adamw.amazer.maze.graph.GraphNode;
-import ph.adamw.amazer.maze.graph.GraphUtils;
 
 import java.io.Serializable;
 
@@ -38,6 +36,8 @@ import java.io.Serializable;
  */
 @Getter
 public class Maze implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	private final int width;
 	private final int height;
 
@@ -46,7 +46,18 @@ public class Maze implements Serializable {
 	private final Cell start;
 	private final Cell goal;
 
-	private final transient Graph graph;
+	// Both built once per maze and only read while agents run so every agent can share them, setWall patches them
+	@Getter(AccessLevel.NONE)
+	private final transient DistanceField distanceField;
+
+	// 4 entries per cell indexed by (col * height + row) * 4 + the EntityDirection ordinal
+	@Getter(AccessLevel.NONE)
+	private final transient int[] sensorTable;
+
+	// Evolutions currently running generations on this maze, setWall refuses to edit it while there are any. Guarded by
+	// this so a run can't start part way through an edit.
+	@Getter(AccessLevel.NONE)
+	private transient int runs = 0;
 
 	public Maze(int width, int height, Cell[][] cells, Cell start, Cell goal) {
 		this.width = width;
@@ -54,12 +65,149 @@ public class Maze implements Serializable {
 		this.cells = cells;
 		this.start = start;
 		this.goal = goal;
-		this.graph = GraphUtils.buildGraph(this);
+
+		final MazeBuildEvent event = new MazeBuildEvent();
+		event.begin();
+
+		this.sensorTable = buildSensorTable();
+		this.distanceField = new DistanceField(this);
+		final int reachable = distanceField.build();
+
+		event.end();
+		if(event.shouldCommit()) {
+			event.width = width;
+			event.height = height;
+			event.reachable = reachable;
+			event.commit();
+		}
+	}
+
+	// The tables aren't serialized so mazes read from disk are rebuilt through the constructor
+	private Object readResolve() {
+		return new Maze(width, height, cells, start, goal);
+	}
+
+	boolean isWall(int col, int row) {
+		return cells[col][row].getState() == CellState.WALL;
+	}
+
+	private int[] buildSensorTable() {
+		final int[] table = new int[width * height * 4];
+		final int up = EntityDirection.UP.ordinal();
+		final int down = EntityDirection.DOWN.ordinal();
+		final int left = EntityDirection.LEFT.ordinal();
+		final int right = EntityDirection.RIGHT.ordinal();
+
+		// Each direction is one sweep, a cell can see one further than its neighbour unless that neighbour is a wall
+		for(int col = 0; col < width; col ++) {
+			for(int row = 0; row < height; row ++) {
+				table[(col * height + row) * 4 + up] = row == 0 || isWall(col, row - 1) ? 0 : table[(col * height + row - 1) * 4 + up] + 1;
+				table[(col * height + row) * 4 + left] = col == 0 || isWall(col - 1, row) ? 0 : table[((col - 1) * height + row) * 4 + left] + 1;
+			}
+		}
+
+		for(int col = width - 1; col >= 0; col --) {
+			for(int row = height - 1; row >= 0; row --) {
+				table[(col * height + row) * 4 + down] = row == height - 1 || isWall(col, row + 1) ? 0 : table[(col * height + row + 1) * 4 + down] + 1;
+				table[(col * height + row) * 4 + right] = col == width - 1 || isWall(col + 1, row) ? 0 : table[((col + 1) * height + row) * 4 + right] + 1;
+			}
+		}
+
+		return table;
 	}
 
 	public int getOptimalDistanceToGoal(int col, int row) {
-		final GraphNode node = graph.getNode(new Cell(col, row, CellState.EMPTY).toString());
-		return node == null ? Integer.MAX_VALUE : node.getShortestDistanceToSource();
+		return distanceField.get(col, row);
+	}
+
+	// Waits for any edit in progress to finish, setWall throws from then until the matching endRun
+	public synchronized void beginRun() {
+		runs ++;
+	}
+
+	public synchronized void endRun() {
+		runs --;
+	}
+
+	/**
+	 * Walls or clears a single cell in place. Only the run of cells sharing its row and column and the region of the
+	 * distance field whose shortest paths change are recomputed, so small edits to a large maze stay cheap.
+	 * Agents read the tables without locking, so this throws while an evolution is running generations on the maze. The
+	 * editor calls it for the walls of the shown evolution's maze between runs.
+	 */
+	public synchronized void setWall(int col, int row, boolean wall) {
+		if(runs > 0) {
+			throw new IllegalStateException("Can't edit a maze while an evolution is running on it!");
+		}
+
+		final Cell cell = cells[col][row];
+
+		if(cell == start || cell == goal) {
+			throw new IllegalArgumentException("The start and goal of a maze can't be walled!");
+		}
+
+		if(isWall(col, row) == wall) {
+			return;
+		}
+
+		cell.setState(wall ? CellState.WALL : CellState.EMPTY);
+		refreshSensors(col, row);
+
+		if(wall) {
+			distanceField.closed(col, row);
+		} else {
+			distanceField.opened(col, row);
+		}
+	}
+
+	// Recomputes the sensor entries the cell can affect, bounded by the nearest walls on each side of it
+	private void refreshSensors(int col, int row) {
+		final int up = EntityDirection.UP.ordinal();
+		final int down = EntityDirection.DOWN.ordinal();
+		final int left = EntityDirection.LEFT.ordinal();
+		final int right = EntityDirection.RIGHT.ordinal();
+
+		int from = col - 1;
+		while(from >= 0 && !isWall(from, row)) {
+			from --;
+		}
+
+		int to = col + 1;
+		while(to < width && !isWall(to, row)) {
+			to ++;
+		}
+
+		from = Math.max(from, 0);
+		to = Math.min(to, width - 1);
+
+		for(int c = from; c <= to; c ++) {
+			sensorTable[(c * height + row) * 4 + left] = c == 0 || isWall(c - 1, row) ? 0 : sensorTable[((c - 1) * height + row) * 4 + left] + 1;
+		}
+
+		for(int c = to; c >= from; c --) {
+			sensorTable[(c * height + row) * 4 + right] = c == width - 1 || isWall(c + 1, row) ? 0 : sensorTable[((c + 1) * height + row) * 4 + right] + 1;
+		}
+
+		from = row - 1;
+		while(from >= 0 && !isWall(col, from)) {
+			from --;
+		}
+
+		to = row + 1;
+		while(to < height && !isWall(col, to)) {
+			to ++;
+		}
+
+		from = Math.max(from, 0);
+		to = Math.min(to, height - 1);
+
+		for(int r = from; r <= to; r ++) {
+			sensorTable[(col * height + r) * 4 + up] = r == 0 || isWall(col, r - 1) ? 0 : sensorTable[(col * height + r - 1) * 4 + up] + 1;
+		}
+
+		for(int r = to; r >= from; r --) {
+			sensorTable[(col * height + r) * 4 + down] = r == height - 1 || isWall(col, r + 1) ? 0 : sensorTable[(col * height + r + 1) * 4 + down] + 1;
+		}
 	}
 
 	public Cell getCellInDirection(Cell cell, EntityDirection dir) {
@@ -101,34 +249,6 @@ public class Maze implements Serializable {
 	}
 
 	public int getDistanceToNextObstacle(int col, int row, EntityDirection dir) {
-		// Finds out if the movement is left/right or up/down
-		final boolean xBased = dir.getX() != 0;
-
-		int x = 0;
-		int y = 0;
-		boolean xBoundsReached = false;
-		boolean yBoundsReached = false;
-
-		while(!(xBoundsReached || yBoundsReached || cells[col + x][row + y].getState() == CellState.WALL)) {
-			if(xBased) {
-				x += dir.getX();
-			} else {
-				y += dir.getY();
-			}
-
-			xBoundsReached = col + x < 0 || col + x > getWidth() - 1;
-			yBoundsReached = row + y < 0 || row + y > getHeight() - 1;
-		}
-
-		int result = 0;
-
-		switch (dir) {
-			case UP: result = y + 1; break;
-			case DOWN: result = y - 1; break;
-			case LEFT: result = x + 1; break;
-			case RIGHT: result = x - 1; break;
-		}
-
-		return Math.abs(result);
+		return sensorTable[(col * height + row) * 4 + dir.ordinal()];
 	}
 }
@@ -0,0 +1,240 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.maze;
+
+import java.util.Arrays;
+
+/*
+ * Keeps track of which open cells are connected while a maze is being edited, so whether the start can reach the goal
+ * is known after every edit without searching the whole grid. Opening a cell is a union with its open neighbours.
+ * Walling a cell can split a region, which a union-find can't undo, so that only forces a rebuild when the cell's
+ * neighbours can't already reach each other around it - painting along the side of a wall never does.
+ */
+public class MazeConnectivity {
+	private final int cols;
+	private final int rows;
+
+	private final boolean[] open;
+
+	// Cells map onto union-find nodes, a cell gets a fresh node every time it's opened since nodes can't leave a set.
+	// Old nodes stay behind in their sets which is harmless, they only ever join cells that are still connected.
+	private final int[] node;
+	private final int[] parent;
+	private final int[] size;
+	private int nextNode = 0;
+
+	private int start = -1;
+	private int goal = -1;
+
+	private boolean dirty = true;
+
+	public MazeConnectivity(int cols, int rows) {
+		this.cols = cols;
+		this.rows = rows;
+
+		// New grids are all empty
+		open = new boolean[cols * rows];
+		Arrays.fill(open, true);
+
+		node = new int[cols * rows];
+		parent = new int[cols * rows * 2 + 1];
+		size = new int[parent.length];
+	}
+
+	public void update(int col, int row, CellState state) {
+		final int i = col * rows + row;
+
+		if(state == CellState.START) {
+			start = i;
+		} else if(start == i) {
+			start = -1;
+		}
+
+		if(state == CellState.GOAL) {
+			goal = i;
+		} else if(goal == i) {
+			goal = -1;
+		}
+
+		final boolean nowOpen = state != CellState.WALL;
+
+		if(open[i] == nowOpen) {
+			return;
+		}
+
+		open[i] = nowOpen;
+
+		if(dirty) {
+			return;
+		}
+
+		if(nowOpen) {
+			if(nextNode == parent.length) {
+				dirty = true;
+				return;
+			}
+
+			node[i] = newNode();
+			unionNeighbours(col, row);
+		} else if(!isSimple(col, row)) {
+			dirty = true;
+		}
+	}
+
+	public boolean hasStart() {
+		return start != -1;
+	}
+
+	public boolean hasGoal() {
+		return goal != -1;
+	}
+
+	public boolean isSolvable() {
+		if(start == -1 || goal == -1) {
+			return false;
+		}
+
+		if(dirty) {
+			rebuild();
+		}
+
+		return find(node[start]) == find(node[goal]);
+	}
+
+	private void rebuild() {
+		nextNode = 0;
+
+		for(int i = 0; i < open.length; i ++) {
+			if(open[i]) {
+				node[i] = newNode();
+			}
+		}
+
+		// Joining each cell to the cells before it covers every edge once
+		for(int col = 0; col < cols; col ++) {
+			for(int row = 0; row < rows; row ++) {
+				final int i = col * rows + row;
+
+				if(!open[i]) {
+					continue;
+				}
+
+				if(col > 0 && open[i - rows]) {
+					union(node[i], node[i - rows]);
+				}
+
+				if(row > 0 && open[i - 1]) {
+					union(node[i], node[i - 1]);
+				}
+			}
+		}
+
+		dirty = false;
+	}
+
+	private void unionNeighbours(int col, int row) {
+		final int i = col * rows + row;
+
+		if(isOpen(col - 1, row)) {
+			union(node[i], node[i - rows]);
+		}
+
+		if(isOpen(col + 1, row)) {
+			union(node[i], node[i + rows]);
+		}
+
+		if(isOpen(col, row - 1)) {
+			union(node[i], node[i - 1]);
+		}
+
+		if(isOpen(col, row + 1)) {
+			union(node[i], node[i + 1]);
+		}
+	}
+
+	/*
+	 * Whether walling this cell leaves every region as connected as it was. That's the case when the open cells next to
+	 * it form one group around its 8 surrounding cells, since any path through it can then go around instead.
+	 */
+	private boolean isSimple(int col, int row) {
+		final boolean[] sides = {isOpen(col, row - 1), isOpen(col + 1, row), isOpen(col, row + 1), isOpen(col - 1, row)};
+
+		// corners[k] sits between sides[k] and sides[k + 1]
+		final boolean[] corners = {isOpen(col + 1, row - 1), isOpen(col + 1, row + 1), isOpen(col - 1, row + 1), isOpen(col - 1, row - 1)};
+
+		int groups = 0;
+
+		for(int k = 0; k < 4; k ++) {
+			if(!sides[k]) {
+				continue;
+			}
+
+			final int prev = (k + 3) % 4;
+			if(!(sides[prev] && corners[prev])) {
+				groups ++;
+			}
+		}
+
+		// All four sides joined through all four corners never starts a group but is still just the one
+		return groups <= 1;
+	}
+
+	private boolean isOpen(int col, int row) {
+		return col >= 0 && row >= 0 && col < cols && row < rows && open[col * rows + row];
+	}
+
+	private int newNode() {
+		parent[nextNode] = nextNode;
+		size[nextNode] = 1;
+		return nextNode ++;
+	}
+
+	private int find(int x) {
+		while(parent[x] != x) {
+			parent[x] = parent[parent[x]];
+			x = parent[x];
+		}
+
+		return x;
+	}
+
+	private void union(int a, int b) {
+		a = find(a);
+		b = find(b);
+
+		if(a == b) {
+			return;
+		}
+
+		if(size[a] < size[b]) {
+			final int t = a;
+			a = b;
+			b = t;
+		}
+
+		parent[b] = a;
+		size[a] += size[b];
+	}
+}
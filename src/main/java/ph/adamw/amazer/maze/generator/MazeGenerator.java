@@ -0,0 +1,297 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.maze.generator;
+
+import ph.adamw.amazer.FileUtils;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/*
+ * Seeded maze generators, the same arguments always give the same maze. Perfect mazes are carved on a lattice of rooms
+ * at odd coordinates so an even width or height leaves the last column or row as solid wall. Everything is iterative
+ * and works on flat arrays with at most one byte per room of bookkeeping, so 10k x 10k grids stay within a few hundred MB.
+ */
+public final class MazeGenerator {
+	public enum Layout {
+		BACKTRACKER,
+		PRIM,
+		WAREHOUSE
+	}
+
+	// Room offsets on the lattice, in the same order as EntityDirection
+	private static final int[] DX = {0, 1, 0, -1};
+	private static final int[] DY = {-1, 0, 1, 0};
+
+	private MazeGenerator() {}
+
+	public static PackedMaze generate(Layout layout, int width, int height, long seed) {
+		switch (layout) {
+			case BACKTRACKER: return recursiveBacktracker(width, height, seed);
+			case PRIM: return prim(width, height, seed);
+			case WAREHOUSE: return warehouse(width, height, seed);
+		}
+
+		throw new IllegalArgumentException("Unknown layout " + layout + "!");
+	}
+
+	/**
+	 * Depth-first carving, gives long winding corridors with few branches. Instead of an explicit stack each room keeps
+	 * the direction it was entered from so backtracking just walks back along it.
+	 */
+	public static PackedMaze recursiveBacktracker(int width, int height, long seed) {
+		final PackedMaze maze = lattice(width, height);
+		final int roomsW = (width - 1) / 2;
+		final int roomsH = (height - 1) / 2;
+		final SplittableRandom random = new SplittableRandom(seed);
+
+		// 0 is unvisited, otherwise the direction taken into the room + 1, the first room has nothing to go back to
+		final byte[] entered = new byte[roomsW * roomsH];
+		final int[] options = new int[4];
+		final int root = 0;
+
+		entered[root] = 5;
+		carveRoom(maze, root, roomsW);
+
+		int current = root;
+
+		while(true) {
+			final int rc = current % roomsW;
+			final int rr = current / roomsW;
+			int count = 0;
+
+			for(int d = 0; d < 4; d ++) {
+				final int nc = rc + DX[d];
+				final int nr = rr + DY[d];
+
+				if(nc >= 0 && nr >= 0 && nc < roomsW && nr < roomsH && entered[nr * roomsW + nc] == 0) {
+					options[count ++] = d;
+				}
+			}
+
+			if(count == 0) {
+				if(current == root) {
+					break;
+				}
+
+				final int back = entered[current] - 1;
+				current = (rr - DY[back]) * roomsW + (rc - DX[back]);
+				continue;
+			}
+
+			final int d = options[random.nextInt(count)];
+			final int next = (rr + DY[d]) * roomsW + (rc + DX[d]);
+
+			entered[next] = (byte) (d + 1);
+			carvePassage(maze, current, d, roomsW);
+			carveRoom(maze, next, roomsW);
+
+			current = next;
+		}
+
+		return finishPerfect(maze, roomsW, roomsH);
+	}
+
+	/**
+	 * Randomised Prim's, grows the maze from a random frontier room each step so it has many short dead ends and a much
+	 * more even texture than the backtracker.
+	 */
+	public static PackedMaze prim(int width, int height, long seed) {
+		final PackedMaze maze = lattice(width, height);
+		final int roomsW = (width - 1) / 2;
+		final int roomsH = (height - 1) / 2;
+		final SplittableRandom random = new SplittableRandom(seed);
+
+		final byte unseen = 0;
+		final byte frontier = 1;
+		final byte inMaze = 2;
+		final byte[] state = new byte[roomsW * roomsH];
+
+		// Grown on demand, the frontier is usually a small fraction of the rooms
+		int[] frontierRooms = new int[1024];
+		int frontierSize = 0;
+
+		final int[] options = new int[4];
+
+		state[0] = inMaze;
+		carveRoom(maze, 0, roomsW);
+
+		int added = 0;
+
+		while(true) {
+			final int rc = added % roomsW;
+			final int rr = added / roomsW;
+
+			for(int d = 0; d < 4; d ++) {
+				final int nc = rc + DX[d];
+				final int nr = rr + DY[d];
+
+				if(nc >= 0 && nr >= 0 && nc < roomsW && nr < roomsH && state[nr * roomsW + nc] == unseen) {
+					if(frontierSize == frontierRooms.length) {
+						frontierRooms = Arrays.copyOf(frontierRooms, frontierSize * 2);
+					}
+
+					state[nr * roomsW + nc] = frontier;
+					frontierRooms[frontierSize ++] = nr * roomsW + nc;
+				}
+			}
+
+			if(frontierSize == 0) {
+				break;
+			}
+
+			// Swap-remove a random frontier room then join it onto a random neighbour that's already part of the maze
+			final int pick = random.nextInt(frontierSize);
+			final int room = frontierRooms[pick];
+			frontierRooms[pick] = frontierRooms[-- frontierSize];
+
+			final int pc = room % roomsW;
+			final int pr = room / roomsW;
+			int count = 0;
+
+			for(int d = 0; d < 4; d ++) {
+				final int nc = pc + DX[d];
+				final int nr = pr + DY[d];
+
+				if(nc >= 0 && nr >= 0 && nc < roomsW && nr < roomsH && state[nr * roomsW + nc] == inMaze) {
+					options[count ++] = d;
+				}
+			}
+
+			state[room] = inMaze;
+			carveRoom(maze, room, roomsW);
+			carvePassage(maze, room, options[random.nextInt(count)], roomsW);
+
+			added = room;
+		}
+
+		return finishPerfect(maze, roomsW, roomsH);
+	}
+
+	/**
+	 * A warehouse floor: double-sided racks two cells deep running left to right, single aisles between them, cross
+	 * aisles cut at random bay lengths and a clear aisle around the perimeter. Not a perfect maze, there are usually
+	 * several routes, but every open cell is reachable. Start is the top left corner and goal the bottom right.
+	 */
+	public static PackedMaze warehouse(int width, int height, long seed) {
+		// At 3x3 the only open cell is both the start and the goal
+		if(width < 3 || height < 3 || width + height < 7) {
+			throw new IllegalArgumentException("A warehouse needs to be at least 3x4 or 4x3, got " + width + "x" + height + "!");
+		}
+
+		final PackedMaze maze = new PackedMaze(width, height);
+		final SplittableRandom random = new SplittableRandom(seed);
+
+		// Outer walls
+		for(int col = 0; col < width; col ++) {
+			maze.setWall(col, 0, true);
+			maze.setWall(col, height - 1, true);
+		}
+
+		for(int row = 0; row < height; row ++) {
+			maze.setWall(0, row, true);
+			maze.setWall(width - 1, row, true);
+		}
+
+		// Rack rows come in pairs after each aisle row, rows 1 and height - 2 are always aisles
+		for(int row = 2; row < height - 2; row += 3) {
+			final boolean pair = row + 1 < height - 2;
+			int col = 2;
+
+			while(col < width - 2) {
+				final int bay = 6 + random.nextInt(11);
+				final int end = Math.min(col + bay, width - 2);
+
+				// The odd bay is left empty, like a staging area or a missing rack
+				if(random.nextInt(12) != 0) {
+					for(int c = col; c < end; c ++) {
+						maze.setWall(c, row, true);
+
+						if(pair) {
+							maze.setWall(c, row + 1, true);
+						}
+					}
+				}
+
+				// One cell cross aisle after the bay
+				col = end + 1;
+			}
+		}
+
+		maze.setStart(1, 1);
+		maze.setGoal(width - 2, height - 2);
+
+		return maze;
+	}
+
+	// Everything starts as wall, rooms and the passages between them get carved out. At least two rooms are needed so the
+	// start and goal aren't the same room.
+	private static PackedMaze lattice(int width, int height) {
+		if(width < 3 || height < 3 || (width < 5 && height < 5)) {
+			throw new IllegalArgumentException("A maze needs to be at least 3x5 or 5x3, got " + width + "x" + height + "!");
+		}
+
+		final PackedMaze maze = new PackedMaze(width, height);
+		maze.fill(true);
+
+		return maze;
+	}
+
+	private static void carveRoom(PackedMaze maze, int room, int roomsW) {
+		maze.setWall(2 * (room % roomsW) + 1, 2 * (room / roomsW) + 1, false);
+	}
+
+	private static void carvePassage(PackedMaze maze, int room, int d, int roomsW) {
+		maze.setWall(2 * (room % roomsW) + 1 + DX[d], 2 * (room / roomsW) + 1 + DY[d], false);
+	}
+
+	private static PackedMaze finishPerfect(PackedMaze maze, int roomsW, int roomsH) {
+		maze.setStart(1, 1);
+		maze.setGoal(2 * roomsW - 1, 2 * roomsH - 1);
+
+		return maze;
+	}
+
+	/**
+	 * Writes a generated maze as a .maz file for the GUI or the experiment runner, e.g.
+	 * java ph.adamw.amazer.maze.generator.MazeGenerator PRIM 101 101 42 prim.maz
+	 */
+	public static void main(String[] args) {
+		if(args.length != 5) {
+			System.err.println("Usage: MazeGenerator <BACKTRACKER|PRIM|WAREHOUSE> <width> <height> <seed> <output.maz>");
+			System.exit(1);
+		}
+
+		final long start = System.nanoTime();
+		final PackedMaze maze = generate(Layout.valueOf(args[0].toUpperCase()), Integer.parseInt(args[1]), Integer.parseInt(args[2]), Long.parseLong(args[3]));
+		System.out.println("Generated " + maze.getWidth() + "x" + maze.getHeight() + " in " + (System.nanoTime() - start) / 1000000 + "ms");
+
+		if(!FileUtils.writeObjectToFile(new File(args[4]), maze.toMaze())) {
+			System.err.println("Failed to write " + args[4] + "!");
+			System.exit(1);
+		}
+	}
+}
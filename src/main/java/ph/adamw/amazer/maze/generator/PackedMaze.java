@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.maze.generator;
+
+import lombok.Getter;
+import ph.adamw.amazer.maze.Cell;
+import ph.adamw.amazer.maze.CellState;
+import ph.adamw.amazer.maze.Maze;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/*
+ * A maze stored as one bit per cell, set for walls, indexed by row * width + col. A 10k x 10k grid is ~12MB this way
+ * against several GB as a Maze full of Cell objects, so generators work in this form and only convert when asked.
+ */
+@Getter
+public class PackedMaze implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final int width;
+	private final int height;
+
+	private final long[] walls;
+
+	private int startCol;
+	private int startRow;
+
+	private int goalCol;
+	private int goalRow;
+
+	public PackedMaze(int width, int height) {
+		if(width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Maze dimensions must be positive, got " + width + "x" + height + "!");
+		}
+
+		this.width = width;
+		this.height = height;
+		this.walls = new long[(int) (((long) width * height + 63) >>> 6)];
+	}
+
+	public boolean isWall(int col, int row) {
+		final long i = (long) row * width + col;
+		return (walls[(int) (i >>> 6)] & (1L << i)) != 0;
+	}
+
+	public void setWall(int col, int row, boolean wall) {
+		final long i = (long) row * width + col;
+
+		if(wall) {
+			walls[(int) (i >>> 6)] |= 1L << i;
+		} else {
+			walls[(int) (i >>> 6)] &= ~(1L << i);
+		}
+	}
+
+	public void fill(boolean wall) {
+		Arrays.fill(walls, wall ? -1L : 0L);
+	}
+
+	public void setStart(int col, int row) {
+		startCol = col;
+		startRow = row;
+	}
+
+	public void setGoal(int col, int row) {
+		goalCol = col;
+		goalRow = row;
+	}
+
+	// Allocates a Cell per grid square, only sensible for sizes that could also be shown in the GUI
+	public Maze toMaze() {
+		final Cell[][] cells = new Cell[width][height];
+
+		for(int col = 0; col < width; col ++) {
+			for(int row = 0; row < height; row ++) {
+				cells[col][row] = new Cell(col, row, isWall(col, row) ? CellState.WALL : CellState.EMPTY);
+			}
+		}
+
+		cells[startCol][startRow].setState(CellState.START);
+		cells[goalCol][goalRow].setState(CellState.GOAL);
+
+		return new Maze(width, height, cells, cells[startCol][startRow], cells[goalCol][goalRow]);
+	}
+}
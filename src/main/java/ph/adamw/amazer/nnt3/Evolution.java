@@ -24,18 +24,36 @@
 
 package ph.adamw.amazer.nnt3;
 
-import com.sun.istack.internal.Nullable;
 import lombok.Getter;
+import ph.adamw.amazer.nnt3.jfr.GenerationEvent;
+import ph.adamw.amazer.nnt3.metrics.Metrics;
+import ph.adamw.amazer.nnt3.metrics.Timer;
 import ph.adamw.amazer.nnt3.neural.Agent;
+import ph.adamw.amazer.nnt3.stats.GenerationStats;
+import ph.adamw.amazer.nnt3.stats.StatisticsWriter;
 
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.Stack;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 public abstract class Evolution<T extends Agent> implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static final Timer POPULATE = Metrics.timer("nnt3.generation.populate");
+	private static final Timer RUN = Metrics.timer("nnt3.generation.run");
+	private static final Timer WAIT = Metrics.timer("nnt3.generation.waitForSortedAgents");
+	private static final Timer SELECTION = Metrics.timer("nnt3.generation.selection");
+
 	private List<T> parents = new ArrayList<>();
 
 	private int currentParentIndex = 0;
@@ -46,17 +64,222 @@ public abstract class Evolution<T extends Agent> implements Serializable {
 	@Getter
 	private Generation<T> generation;
 
+	// One small entry per completed generation, saved along with the evolution. Not final so readObject can fill it in
+	// for streams written before it existed
+	private List<GenerationStats> history = new ArrayList<>();
+
+	// Swapped by setStatisticsFile from whichever thread, usually the GUI's, while a run reads it
+	private transient volatile StatisticsWriter statisticsWriter;
+
+	// State of the current run call, only used to report progress
+	private transient volatile Generation<T> runningGeneration;
+	private transient volatile int runTotalGenerations;
+	private transient volatile int runCompletedGenerations;
+	private transient volatile long runCompletedAgents;
+	private transient volatile long runStartNanos;
+
+	private transient volatile boolean cancelled = false;
+
+	private transient volatile boolean running = false;
+
+	// Set by reserveRun until the run call it was made for starts, guarded by this
+	private transient boolean reserved = false;
+
 	protected abstract Generation<T> populate(Generation<T> generation);
 
 	public void run(int generations, boolean threadNetworks) {
-		for (int i = 0; i < generations; i++) {
-			generation = populate(new Generation<>());
-			generation.run(threadNetworks);
-			parents.clear();
+		runGenerations(generations, gen -> gen.run(threadNetworks));
+	}
+
+	// Evaluates agents as tasks on the given executor, i.e. a shared pool, rather than a thread each
+	public void run(int generations, Executor executor) {
+		runGenerations(generations, gen -> gen.run(executor));
+	}
+
+	private void runGenerations(int generations, Consumer<Generation<T>> runner) {
+		synchronized (this) {
+			if(running && !reserved) {
+				throw new IllegalStateException("This evolution is already running!");
+			}
+
+			running = true;
+			reserved = false;
+		}
+
+		onRunStart();
+
+		try {
+			runGenerationsInternal(generations, runner);
+		} finally {
+			onRunEnd();
+			running = false;
+		}
+	}
+
+	// Called around each run call, by then no agent of the run is still being evaluated
+	protected void onRunStart() {}
+
+	protected void onRunEnd() {}
+
+	private void runGenerationsInternal(int generations, Consumer<Generation<T>> runner) {
+		cancelled = false;
+		runTotalGenerations = generations;
+		runCompletedGenerations = 0;
+		runCompletedAgents = 0;
+		runStartNanos = System.nanoTime();
+
+		for (int i = 0; i < generations && !cancelled; i++) {
+			// Same number the stats row and CSV get, so profiles can be joined with them
+			final int index = generationCount;
+
+			final GenerationEvent event = new GenerationEvent();
+			event.begin();
+			final long generationStart = System.nanoTime();
+
+			long start = POPULATE.start();
+			final Generation<T> next = populate(new Generation<>());
+			POPULATE.stop(start);
+			runningGeneration = next;
+
+			// Checked again now the generation is visible to cancel()
+			if(cancelled) {
+				next.cancel();
+			}
+
+			start = RUN.start();
+			runner.accept(next);
+			RUN.stop(start);
+
 			// Longest aspect
-			parents.addAll(generation.waitForSortedAgents());
+			start = WAIT.start();
+			final List<T> sorted = next.waitForSortedAgents();
+			WAIT.stop(start);
+
+			// A partially evaluated generation is thrown away so the last complete one stays current
+			if(next.isCancelled()) {
+				commitEvent(event, index, next, true);
+				break;
+			}
+
+			final GenerationStats stats = next.getStats(index, (System.nanoTime() - generationStart) / 1000000);
+			history.add(stats);
+
+			final StatisticsWriter writer = statisticsWriter;
+			if(writer != null) {
+				writer.write(stats);
+			}
+
+			start = SELECTION.start();
+			generation = next;
+			parents.clear();
+			parents.addAll(sorted);
 			generationCount ++;
+			SELECTION.stop(start);
+
+			runCompletedAgents += next.size();
+			runCompletedGenerations ++;
+
+			commitEvent(event, index, next, false);
 		}
+
+		runningGeneration = null;
+	}
+
+	private void commitEvent(GenerationEvent event, int index, Generation<T> gen, boolean cancelled) {
+		event.end();
+
+		// Fields are only filled in when the event is enabled and over its threshold
+		if(event.shouldCommit()) {
+			event.generation = index;
+			event.size = gen.size();
+			event.settings = describeSettings();
+			event.bestFitness = gen.getBestFitness();
+			event.cancelled = cancelled;
+			event.commit();
+		}
+	}
+
+	// Used to label profiling data, implementations should describe whatever shapes their agents
+	protected String describeSettings() {
+		return "";
+	}
+
+	public List<GenerationStats> getHistory() {
+		return Collections.unmodifiableList(history);
+	}
+
+	/**
+	 * Streams the statistics of every generation completed from now on to the given CSV file, appending if it exists.
+	 * Passing null stops recording.
+	 */
+	public synchronized void setStatisticsFile(File file) throws IOException {
+		final StatisticsWriter old = statisticsWriter;
+		statisticsWriter = null;
+
+		if(old != null) {
+			old.close();
+		}
+
+		if(file != null) {
+			statisticsWriter = new StatisticsWriter(file);
+		}
+	}
+
+	/**
+	 * Stops the current run at the next agent or generation boundary. Agents already being evaluated are allowed to
+	 * finish but the generation they belong to is discarded.
+	 */
+	public void cancel() {
+		cancelled = true;
+
+		final Generation<T> running = runningGeneration;
+		if(running != null) {
+			running.cancel();
+		}
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Marks the evolution as running ahead of a run call that another thread is about to make, so isRunning is true
+	 * from now on rather than from whenever that thread gets going. The next run call takes the reservation over.
+	 * @return False if it's already running or reserved
+	 */
+	public synchronized boolean reserveRun() {
+		if(running) {
+			return false;
+		}
+
+		running = true;
+		reserved = true;
+		return true;
+	}
+
+	// Gives back a reservation whose run call never happened, does nothing once that call has started
+	public synchronized void releaseRun() {
+		if(reserved) {
+			reserved = false;
+			running = false;
+		}
+	}
+
+	public EvolutionProgress getProgress() {
+		final Generation<T> running = runningGeneration;
+		final int completedAgents = running == null ? 0 : running.getCompletedCount();
+		final double seconds = (System.nanoTime() - runStartNanos) / 1e9;
+
+		return new EvolutionProgress(
+				runCompletedGenerations,
+				runTotalGenerations,
+				completedAgents,
+				running == null ? 0 : running.size(),
+				running == null ? Double.NaN : running.getBestFitness(),
+				running == null ? Double.NaN : running.getMeanFitness(),
+				seconds <= 0 ? 0 : (runCompletedAgents + completedAgents) / seconds,
+				cancelled
+		);
 	}
 
 	@Nullable
@@ -72,4 +295,12 @@ public abstract class Evolution<T extends Agent> implements Serializable {
 
 		return parents.get(currentParentIndex);
 	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+
+		if(history == null) {
+			history = new ArrayList<>();
+		}
+	}
 }
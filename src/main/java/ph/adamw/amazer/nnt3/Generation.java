@@ -25,22 +25,134 @@
 package ph.adamw.amazer.nnt3;
 
 import ph.adamw.amazer.nnt3.neural.Agent;
+import ph.adamw.amazer.nnt3.stats.GenerationStats;
+import ph.adamw.amazer.nnt3.stats.QuantileSketch;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Generation<T extends Agent> implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	private final HashSet<T> members = new HashSet<>();
 
+	// Running totals so progress can be read while the agents are still being evaluated. Not saved, readObject makes
+	// them again from the finished members.
+	private transient AtomicInteger completed;
+	private transient DoubleAdder fitnessSum;
+	private transient DoubleAccumulator bestFitness;
+	private transient DoubleAccumulator worstFitness;
+	private transient QuantileSketch fitnessSketch;
+	private transient LongAdder cyclesSum;
+	private transient LongAdder goalsReached;
+
+	private transient volatile boolean cancelled = false;
+
+	public Generation() {
+		resetTotals();
+	}
+
+	private void resetTotals() {
+		completed = new AtomicInteger();
+		fitnessSum = new DoubleAdder();
+		bestFitness = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+		worstFitness = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+		fitnessSketch = new QuantileSketch();
+		cyclesSum = new LongAdder();
+		goalsReached = new LongAdder();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		resetTotals();
+
+		// Failed agents are left at infinite fitness and were never counted
+		for(T agent : members) {
+			if(agent.isDone() && !Double.isInfinite(agent.getFitness())) {
+				agentFinished(agent);
+			}
+		}
+	}
+
 	public void run(boolean threaded) {
 		for (T network : members) {
+			network.setGeneration(this);
 			network.start(threaded);
 		}
 	}
 
+	public void run(Executor executor) {
+		for (T network : members) {
+			network.setGeneration(this, executor);
+			executor.execute(network);
+		}
+	}
+
+	// Agents that haven't started evaluating yet will skip their evaluation, running ones finish normally
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public void agentFinished(Agent agent) {
+		fitnessSum.add(agent.getFitness());
+		bestFitness.accumulate(agent.getFitness());
+		worstFitness.accumulate(agent.getFitness());
+		fitnessSketch.add(agent.getFitness());
+		cyclesSum.add(agent.getEvaluations());
+
+		if(agent.hasReachedGoal()) {
+			goalsReached.increment();
+		}
+
+		completed.incrementAndGet();
+	}
+
+	public GenerationStats getStats(int index, long durationMillis) {
+		final int c = completed.get();
+
+		return new GenerationStats(
+				index,
+				size(),
+				getBestFitness(),
+				getMeanFitness(),
+				fitnessSketch.quantile(0.25),
+				fitnessSketch.quantile(0.5),
+				fitnessSketch.quantile(0.75),
+				fitnessSketch.quantile(0.9),
+				c == 0 ? Double.NaN : worstFitness.get(),
+				c == 0 ? Double.NaN : (double) goalsReached.sum() / c,
+				c == 0 ? Double.NaN : (double) cyclesSum.sum() / c,
+				durationMillis
+		);
+	}
+
+	public int getCompletedCount() {
+		return completed.get();
+	}
+
+	public double getBestFitness() {
+		return completed.get() == 0 ? Double.NaN : bestFitness.get();
+	}
+
+	public double getMeanFitness() {
+		final int c = completed.get();
+		return c == 0 ? Double.NaN : fitnessSum.sum() / c;
+	}
+
 	public List<T> getSortedCopyOfMembers() {
 		List<T> sorted = new ArrayList<>(members);
 		Collections.sort(sorted);
@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * A fixed set of worker threads shared by any number of clients. Every client gets its own queue and the workers take
+ * from the queues round-robin, so a client that submits a whole generation at once can't starve the others.
+ */
+public class FairWorkerPool implements AutoCloseable {
+	private final List<Client> clients = new ArrayList<>();
+	private final Thread[] workers;
+
+	private int nextClient = 0;
+	private boolean closed = false;
+
+	public FairWorkerPool(int threads, String name) {
+		workers = new Thread[threads];
+
+		for(int i = 0; i < threads; i ++) {
+			workers[i] = new Thread(this::work, name + " " + i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+	}
+
+	public int getThreads() {
+		return workers.length;
+	}
+
+	public synchronized Client newClient() {
+		final Client client = new Client();
+		clients.add(client);
+		return client;
+	}
+
+	private synchronized Runnable take() throws InterruptedException {
+		while(!closed) {
+			for(int i = 0; i < clients.size(); i ++) {
+				final int index = (nextClient + i) % clients.size();
+				final Runnable task = clients.get(index).tasks.poll();
+
+				if(task != null) {
+					nextClient = (index + 1) % clients.size();
+					return task;
+				}
+			}
+
+			wait();
+		}
+
+		return null;
+	}
+
+	private void work() {
+		try {
+			Runnable task;
+			while((task = take()) != null) {
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					// Keep the worker alive for everyone else
+					e.printStackTrace();
+				}
+			}
+		} catch (InterruptedException ignored) {
+			// Closing
+		}
+	}
+
+	// Queued tasks that haven't started are dropped
+	@Override
+	public synchronized void close() {
+		closed = true;
+		notifyAll();
+	}
+
+	public class Client implements Executor, AutoCloseable {
+		private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+		@Override
+		public void execute(Runnable task) {
+			synchronized (FairWorkerPool.this) {
+				if(closed) {
+					throw new IllegalStateException("The worker pool has been closed!");
+				}
+
+				tasks.add(task);
+				FairWorkerPool.this.notify();
+			}
+		}
+
+		// Detaches the client, anything it still has queued is dropped
+		@Override
+		public void close() {
+			synchronized (FairWorkerPool.this) {
+				clients.remove(this);
+				tasks.clear();
+				nextClient = clients.isEmpty() ? 0 : nextClient % clients.size();
+			}
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ph.adamw.amazer.nnt3.concurrent;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * A piece of work handed to an executor from inside another task, which whoever gets to it first runs: a worker, or the
+ * thread joining it. A joining thread runs anything nobody has started itself, so a task forked from one of a pool's own
+ * workers can't deadlock the pool waiting for a free worker, and work a closed client dropped still gets done.
+ */
+public class ForkedTask<V> implements Runnable {
+	private final Supplier<V> work;
+	private final AtomicBoolean claimed = new AtomicBoolean();
+
+	private boolean done = false;
+	private V result;
+	private RuntimeException failure;
+
+	private ForkedTask(Supplier<V> work) {
+		this.work = work;
+	}
+
+	public static <V> ForkedTask<V> fork(Supplier<V> work, Executor executor) {
+		final ForkedTask<V> task = new ForkedTask<>(work);
+
+		try {
+			executor.execute(task);
+		} catch (IllegalStateException e) {
+			// The executor is shutting down, join will run it instead
+		}
+
+		return task;
+	}
+
+	@Override
+	public void run() {
+		if(!claimed.compareAndSet(false, true)) {
+			return;
+		}
+
+		V value = null;
+		RuntimeException thrown = null;
+
+		try {
+			value = work.get();
+		} catch (RuntimeException e) {
+			thrown = e;
+		} finally {
+			synchronized (this) {
+				result = value;
+				failure = thrown;
+				done = true;
+				notifyAll();
+			}
+		}
+	}
+
+	// Runs the work here if nobody has started it yet, otherwise waits for whoever did. Rethrows anything it threw.
+	public V join() {
+		run();
+
+		boolean interrupted = false;
+
+		synchronized (this) {
+			while(!done) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					// The work is already running elsewhere and can't be abandoned, so finish waiting for it
+					interrupted = true;
+				}
+			}
+		}
+
+		if(interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		if(failure != null) {
+			throw failure;
+		}
+
+		return result;
+	}
+}
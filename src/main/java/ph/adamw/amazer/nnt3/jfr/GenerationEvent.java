@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Spans one generation of Evolution.run, from populating it to selecting its parents. Disabled unless turned on in a
+ * JFR configuration, e.g. -XX:StartFlightRecording:settings=profile with ph.adamw.amazer.nnt3.Generation#enabled=true
+ */
+@Name("ph.adamw.amazer.nnt3.Generation")
+@Label("Generation")
+@Category({"NNt3"})
+@Description("One generation of an evolution")
+@Enabled(false)
+@StackTrace(false)
+public class GenerationEvent extends Event {
+	@Label("Generation")
+	public int generation;
+
+	@Label("Size")
+	public int size;
+
+	@Label("Settings")
+	public String settings;
+
+	@Label("Best Fitness")
+	public double bestFitness;
+
+	@Label("Cancelled")
+	public boolean cancelled;
+}
@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.metrics;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide registry of named counters and timers. Look a metric up once, keep it in a static field and only
+ * increment it on the hot path - lookups go through a map, increments don't.
+ */
+public class Metrics {
+	private static final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+	private static final String OBJECT_NAME = "ph.adamw.amazer.nnt3:type=Metrics";
+
+	private static ScheduledExecutorService dumper;
+
+	public static Counter counter(String name) {
+		return counters.computeIfAbsent(name, n -> new Counter());
+	}
+
+	public static Timer timer(String name) {
+		return timers.computeIfAbsent(name, n -> new Timer());
+	}
+
+	public static void reset() {
+		counters.values().forEach(Counter::reset);
+		timers.values().forEach(Timer::reset);
+	}
+
+	public static String dump() {
+		final StringBuilder sb = new StringBuilder();
+
+		for(Map.Entry<String, Counter> e : new TreeMap<>(counters).entrySet()) {
+			sb.append(e.getKey()).append(" = ").append(e.getValue().get()).append('\n');
+		}
+
+		for(Map.Entry<String, Timer> e : new TreeMap<>(timers).entrySet()) {
+			final Timer t = e.getValue();
+			sb.append(e.getKey())
+					.append(" = ").append(t.getCount()).append(" calls")
+					.append(String.format(", %.2fms total, %.3fms mean, %.3fms max", t.getTotalMillis(), t.getMeanMillis(), t.getMaxMillis()))
+					.append('\n');
+		}
+
+		return sb.toString();
+	}
+
+	public static synchronized void registerMBean() {
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		try {
+			final ObjectName name = new ObjectName(OBJECT_NAME);
+
+			if(!server.isRegistered(name)) {
+				server.registerMBean(new Bean(), name);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Prints {@link #dump()} to the given stream at a fixed rate on a daemon thread, calling this again replaces the
+	 * previous schedule.
+	 */
+	public static synchronized void startPeriodicDump(long period, TimeUnit unit, PrintStream out) {
+		if(dumper != null) {
+			dumper.shutdownNow();
+		}
+
+		dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread t = new Thread(r, "NNt3 Metrics Dump");
+			t.setDaemon(true);
+			return t;
+		});
+
+		dumper.scheduleAtFixedRate(() -> out.print("-- NNt3 metrics --\n" + dump()), period, period, unit);
+	}
+
+	private static <T, V> Map<String, V> collect(Map<String, T> source, Function<T, V> value) {
+		final Map<String, V> ret = new TreeMap<>();
+
+		for(Map.Entry<String, T> e : source.entrySet()) {
+			ret.put(e.getKey(), value.apply(e.getValue()));
+		}
+
+		return ret;
+	}
+
+	private static class Bean implements MetricsMXBean {
+		@Override
+		public Map<String, Long> getCounters() {
+			return collect(counters, Counter::get);
+		}
+
+		@Override
+		public Map<String, Long> getTimerCounts() {
+			return collect(timers, Timer::getCount);
+		}
+
+		@Override
+		public Map<String, Double> getTimerTotalMillis() {
+			return collect(timers, Timer::getTotalMillis);
+		}
+
+		@Override
+		public Map<String, Double> getTimerMeanMillis() {
+			return collect(timers, Timer::getMeanMillis);
+		}
+
+		@Override
+		public Map<String, Double> getTimerMaxMillis() {
+			return collect(timers, Timer::getMaxMillis);
+		}
+
+		@Override
+		public String dump() {
+			return Metrics.dump();
+		}
+
+		@Override
+		public void reset() {
+			Metrics.reset();
+		}
+	}
+}
@@ -24,18 +24,35 @@
 
 package ph.adamw.amazer.nnt3.neural;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import ph.adamw.amazer.nnt3.Generation;
+import ph.adamw.amazer.nnt3.jfr.AgentRunEvent;
+import ph.adamw.amazer.nnt3.metrics.Counter;
+import ph.adamw.amazer.nnt3.metrics.Metrics;
+import ph.adamw.amazer.nnt3.neural.codegen.EvaluatorCompiler;
+import ph.adamw.amazer.nnt3.neural.codegen.NetworkEvaluator;
+import ph.adamw.amazer.nnt3.neural.genetics.GeneticOperators;
 import ph.adamw.amazer.nnt3.neural.neuron.Neuron;
 import ph.adamw.amazer.nnt3.neural.neuron.NeuronConnection;
 import ph.adamw.amazer.nnt3.neural.neuron.NeuronLayer;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
 
 public abstract class Agent implements Runnable, Comparable<Agent>, Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static final Counter AGENTS_EVALUATED = Metrics.counter("nnt3.agents.evaluated");
+	private static final Counter NETWORK_EVALUATIONS = Metrics.counter("nnt3.network.evaluations");
+
 	private final NeuralNetSettings settings;
 
 	@Getter
@@ -44,6 +61,10 @@ public abstract class Agent implements Runnable, Comparable<Agent>, Serializable
 	@Getter
 	private boolean isDone = false;
 
+	// Set when the last run threw, the agent is then left at the worst possible fitness and isn't counted in the stats
+	@Getter
+	private transient boolean failed = false;
+
 	@Getter
 	private String threadName;
 
@@ -56,59 +77,267 @@ public abstract class Agent implements Runnable, Comparable<Agent>, Serializable
 	@Getter
 	private NeuronLayer outputLayer;
 
+	// Only set with seeded storage, the agent then has no neuron layers and is loaded into a scratch network to run
+	@Getter
+	private SeedGenome genome;
+
+	// Only set with off-heap storage, the agent is then a view of one slot in its generation's buffer
+	private transient PopulationStore store;
+	private transient int epoch;
+	private transient int slot;
+
+	// An off-heap agent's weights are copied out here when it's saved since the store can't be
+	private double[] detachedWeights;
+
 	private Thread thread;
 
+	// Hidden layers then the output layer, packed once the weights are final since they never change after that. Seeded
+	// and off-heap agents only have them while running, borrowed from the thread's scratch.
+	private transient PackedLayer[] packedLayers;
+
+	// Used instead of the packed layers when the topology has a generated evaluator, which runs on the flat weights
+	private transient NetworkEvaluator evaluator;
+	private transient double[] flatWeights;
+
+	private transient Generation<?> generation;
+
+	// The executor the generation is being run on, null for thread-per-agent runs. Agents can fork work of their own onto
+	// it through ForkedTask so it shares the same workers.
+	@Getter(AccessLevel.PROTECTED)
+	private transient Executor executor;
+
+	// Counted locally and flushed once per run so evaluate doesn't touch shared state. Saved so a loaded generation's
+	// stats can be counted again.
+	@Getter
+	private int evaluations = 0;
+
 	public Agent(NeuralNetSettings settings, Agent parent, String threadName) {
+		this(settings, parent, threadName, null);
+	}
+
+	public Agent(NeuralNetSettings settings, Agent parent, String threadName, PopulationStore store) {
+		this(settings, parent, null, threadName, store);
+	}
+
+	/**
+	 * @param otherParent Crossed with the parent when the settings have a crossover, can be null to breed from one parent
+	 * @param store Where the weights go with off-heap storage, the parents have to be from the store's last generation or
+	 *              from a saved evolution. Ignored for any other storage.
+	 */
+	public Agent(NeuralNetSettings settings, Agent parent, Agent otherParent, String threadName, PopulationStore store) {
 		this.settings = settings;
 
 		this.threadName = threadName;
 
-		inputLayer = new NeuronLayer(settings.getInputs(), settings.getActivationFunction());
+		if (settings.getStorage() == NeuralNetSettings.Storage.SEEDED) {
+			if (parent != null && parent.genome == null) {
+				throw new IllegalArgumentException("A seeded agent can only be bred from another seeded agent!");
+			}
 
-		for (int i = 0; i < settings.getHiddenLayersAmount(); i++) {
-			hiddenLayers.add(new NeuronLayer(settings.getHiddenLayersSize(), settings.getActivationFunction()));
+			genome = SeedGenome.child(parent == null ? null : parent.genome, ThreadLocalRandom.current().nextLong(), settings.getMutationRate(), GenomeScratch.get(settings).getLayout(), settings);
+			return;
+		}
+
+		genome = null;
+
+		// Every other storage is bred as flat weights in the populating thread's scratch then copied to where it lives
+		final GenomeScratch scratch = GenomeScratch.get(settings);
+		breed(parent, otherParent, scratch);
+
+		if (settings.getStorage() == NeuralNetSettings.Storage.OFF_HEAP) {
+			if (store == null) {
+				throw new IllegalArgumentException("An off-heap agent needs a population store!");
+			}
+
+			this.store = store;
+			this.epoch = store.getEpoch();
+			this.slot = store.allocate();
+
+			store.write(epoch, slot, scratch.getWeights());
+			return;
+		}
+
+		final int hiddenAmount = settings.getHiddenLayersAmount();
+
+		// The input layer's neurons only ever hold values so its activation function is never used
+		inputLayer = new NeuronLayer(settings.getInputs(), settings.getActivationFunction(hiddenAmount), settings.getApproximation());
+
+		for (int i = 0; i < hiddenAmount; i++) {
+			hiddenLayers.add(new NeuronLayer(settings.getHiddenLayerSize(i), settings.getActivationFunction(i), settings.getApproximation()));
+		}
+
+		outputLayer = new NeuronLayer(settings.getOutputs(), settings.getActivationFunction(hiddenAmount), settings.getApproximation());
+
+		// Each layer pulls from the one before it, without hidden layers the outputs connect straight to the inputs
+		final List<NeuronLayer> layers = getAllLayers();
+		for (int i = 1; i < layers.size(); i++) {
+			layers.get(i).connectToLayer(layers.get(i - 1));
+		}
+
+		// A recurrent layer also pulls from its own last values, those weights come after the ones from the layer before
+		for (int i = 0; i < hiddenAmount; i++) {
+			if (settings.isRecurrent(i)) {
+				hiddenLayers.get(i).connectToLayer(hiddenLayers.get(i));
+			}
+		}
+
+		setNeuronWeights(scratch.getWeights());
+		packLayers();
+	}
+
+	/**
+	 * Turns a finished agent into a new child in place, keeping its neuron graph, packed layers and buffers so a
+	 * generation can be made without allocating a network per agent. Nothing may still be using the agent, which
+	 * includes being a parent of the generation being made.
+	 */
+	protected void reuse(Agent parent, Agent otherParent, String threadName, PopulationStore store) {
+		if (thread != null) {
+			throw new IllegalStateException("Can't reuse " + this.threadName + " while it's still running!");
+		}
+
+		this.threadName = threadName;
+		fitness = 0;
+		evaluations = 0;
+		generation = null;
+		failed = false;
+		isDone = false;
+
+		if (genome != null) {
+			genome = SeedGenome.child(parent == null ? null : parent.genome, ThreadLocalRandom.current().nextLong(), settings.getMutationRate(), GenomeScratch.get(settings).getLayout(), settings);
+			return;
 		}
 
-		outputLayer = new NeuronLayer(settings.getOutputs(), settings.getActivationFunction());
+		final GenomeScratch scratch = GenomeScratch.get(settings);
+		breed(parent, otherParent, scratch);
+
+		// Off-heap, or detached by being saved, either way the child goes into a new slot
+		if (inputLayer == null) {
+			if (store == null) {
+				throw new IllegalArgumentException("An off-heap agent needs a population store!");
+			}
 
-		// Inputs to first hidden layer
-		hiddenLayers.get(0).connectToLayer(inputLayer);
+			this.store = store;
+			this.epoch = store.getEpoch();
+			this.slot = store.allocate();
+			detachedWeights = null;
 
-		// Hidden layers to each other
-		for (int i = 0; i <= hiddenLayers.size() - 2; i++) {
-			hiddenLayers.get(i + 1).connectToLayer(hiddenLayers.get(i));
+			store.write(epoch, slot, scratch.getWeights());
+			return;
 		}
 
-		// Last hidden layer to output layer
-		outputLayer.connectToLayer(hiddenLayers.get(hiddenLayers.size() - 1));
+		setNeuronWeights(scratch.getWeights());
 
-		randomizeWeights(parent);
+		// Loaded over the old buffers rather than packed again
+		if (evaluator != null) {
+			System.arraycopy(scratch.getWeights(), 0, flatWeights, 0, flatWeights.length);
+		} else {
+			final GenomeLayout layout = scratch.getLayout();
+
+			for (int i = 0; i < packedLayers.length; i++) {
+				packedLayers[i].load(scratch.getWeights(), layout.weightOffset(i), scratch.getWeights(), layout.biasOffset(i));
+			}
+		}
 	}
 
-	private void randomizeWeights(Agent parent) {
+	// Fills the scratch's weights with a new random network or a child of the given parents
+	private void breed(Agent parent, Agent otherParent, GenomeScratch scratch) {
+		final GenomeLayout layout = scratch.getLayout();
+		final double[] weights = scratch.getWeights();
+		final SplittableRandom random = new SplittableRandom(ThreadLocalRandom.current().nextLong());
+
 		if (parent == null) {
-			final Random random = new Random();
-			for (NeuronLayer layer : getAllLayers()) {
-				for (Neuron neuron : layer)
+			layout.randomise(settings.isBiased(), random, weights);
+			return;
+		}
+
+		parent.copyFlatWeights(weights);
+
+		if (otherParent != null && settings.getCrossover() != GeneticOperators.Crossover.NONE) {
+			final double[] other = scratch.getSpareWeights();
+			otherParent.copyFlatWeights(other);
+			GeneticOperators.crossover(settings.getCrossover(), weights, other, weights, 0, layout.length(), random);
+		}
+
+		layout.mutate(settings, settings.getMutationRate(), random, weights);
+	}
+
+	private void packLayers() {
+		evaluator = EvaluatorCompiler.get(settings);
+
+		if (evaluator != null) {
+			flatWeights = new double[GenomeScratch.get(settings).getLayout().length()];
+			copyFlatWeights(flatWeights);
+			return;
+		}
+
+		final List<NeuronLayer> layers = getAllLayers();
+		final GenomeLayout layout = GenomeScratch.get(settings).getLayout();
+		packedLayers = new PackedLayer[layers.size() - 1];
+
+		for (int i = 1; i < layers.size(); i++) {
+			packedLayers[i - 1] = new PackedLayer(layers.get(i), layout.fanIn(i - 1), settings.getPrecision());
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+
+		if (inputLayer != null) {
+			packLayers();
+		}
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		if (store != null) {
+			detachedWeights = new double[GenomeScratch.get(settings).getLayout().length()];
+			store.read(epoch, slot, detachedWeights);
+		}
+
+		out.defaultWriteObject();
+	}
+
+	// Weights in GenomeLayout order whatever the storage
+	private void copyFlatWeights(double[] into) {
+		if (inputLayer != null) {
+			final List<NeuronLayer> layers = getAllLayers();
+			final GenomeLayout layout = GenomeScratch.get(settings).getLayout();
+
+			for (int l = 1; l < layers.size(); l++) {
+				int weight = layout.weightOffset(l - 1);
+				final int bias = layout.biasOffset(l - 1);
+
+				for (int j = 0; j < layers.get(l).size(); j++) {
+					final Neuron neuron = layers.get(l).get(j);
+					into[bias + j] = neuron.getBias();
+
 					for (NeuronConnection connection : neuron.getConnections()) {
-						connection.setWeight(random.nextFloat() * 2 - 1);
+						into[weight ++] = connection.getWeight();
 					}
+				}
 			}
-
-			return;
+		} else if (store != null) {
+			store.read(epoch, slot, into);
+		} else if (detachedWeights != null) {
+			System.arraycopy(detachedWeights, 0, into, 0, detachedWeights.length);
+		} else if (genome != null) {
+			genome.materialise(GenomeScratch.get(settings).getLayout(), settings, into);
 		}
+	}
 
-		// Mutate the weights from the parents if it is not null
-		for (int i = 0; i < getAllLayers().size(); i++) {
-			for (int j = 0; j < getAllLayers().get(i).size(); j++) {
-				final Neuron thisNeuron = getAllLayers().get(i).get(j);
-				final Neuron parentNeuron = parent.getAllLayers().get(i).get(j);
+	private void setNeuronWeights(double[] from) {
+		final List<NeuronLayer> layers = getAllLayers();
+		final GenomeLayout layout = GenomeScratch.get(settings).getLayout();
 
-				for (int k = 0; k < thisNeuron.getConnections().size(); k++) {
-					double w = parentNeuron.getConnections().get(k).getWeight();
-					double mutatedWeight = Agent.Utils.mutateWeight(w, settings.getMutationRate());
+		for (int l = 1; l < layers.size(); l++) {
+			int weight = layout.weightOffset(l - 1);
+			final int bias = layout.biasOffset(l - 1);
 
-					thisNeuron.getConnections().get(k).setWeight(mutatedWeight);
+			for (int j = 0; j < layers.get(l).size(); j++) {
+				final Neuron neuron = layers.get(l).get(j);
+				neuron.setBias(from[bias + j]);
+
+				for (NeuronConnection connection : neuron.getConnections()) {
+					connection.setWeight(from[weight ++]);
 				}
 			}
 		}
@@ -124,20 +353,61 @@ public abstract class Agent implements Runnable, Comparable<Agent>, Serializable
 		return layers;
 	}
 
-	protected double[] evaluate(double[] inputs) {
-		if (inputs.length != inputLayer.size()) {
+	/*
+	 * One buffer per layer then one per recurrent layer for its context, each call gives an independent network state
+	 * for use with evaluate(double[], double[][]). Zeroing every buffer resets the network, context included.
+	 */
+	protected double[][] newState() {
+		final int[] sizes = settings.getLayerSizes();
+		final List<double[]> state = new ArrayList<>();
+
+		for (int size : sizes) {
+			state.add(new double[size]);
+		}
+
+		// A context buffer holds the layer's inputs followed by its last activations, see PackedLayer.feedForwardRecurrent
+		for (int i = 0; i < settings.getHiddenLayersAmount(); i++) {
+			if (settings.isRecurrent(i)) {
+				state.add(new double[sizes[i] + sizes[i + 1]]);
+			}
+		}
+
+		return state.toArray(new double[0][]);
+	}
+
+	/**
+	 * Evaluates the network against a state from newState() rather than the neurons' own values, so the same agent can be
+	 * evaluated from several threads at once as long as each has its own state. Runs at the precision in the settings.
+	 * @return The output layer's buffer within the state, only valid until the next call with the same state
+	 */
+	protected double[] evaluate(double[] inputs, double[][] state) {
+		if (inputs.length != settings.getInputs()) {
 			throw new RuntimeException("Input sample size needs to match the size of the input layer!");
 		}
 
-		inputLayer.setValues(inputs);
+		final int output = settings.getHiddenLayersAmount() + 1;
+		System.arraycopy(inputs, 0, state[0], 0, inputs.length);
+
+		if (evaluator != null) {
+			evaluator.evaluate(flatWeights, state);
+			return state[output];
+		}
 
-		for (NeuronLayer hiddenLayer : hiddenLayers) {
-			hiddenLayer.feedForward();
+		int context = output + 1;
+		for (int i = 0; i < packedLayers.length; i++) {
+			if (settings.isRecurrent(i)) {
+				packedLayers[i].feedForwardRecurrent(state[i], state[i + 1], state[context ++]);
+			} else {
+				packedLayers[i].feedForward(state[i], state[i + 1]);
+			}
 		}
 
-		outputLayer.feedForward();
+		return state[output];
+	}
 
-		return outputLayer.getValues();
+	// Evaluations against a separate state aren't counted automatically since they may be running on other threads
+	protected void addEvaluations(int amount) {
+		evaluations += amount;
 	}
 
 	public void start(boolean threaded) {
@@ -151,32 +421,93 @@ public abstract class Agent implements Runnable, Comparable<Agent>, Serializable
 
 	@Override
 	public void run() {
-		// If the agent is being reused, flush the values so behaviour is consistent
-		if(isDone) {
-			flushValues();
-		}
-
 		isDone = false;
 
-		fitness = evaluateFitness();
+		final boolean skipped = generation != null && generation.isCancelled();
+		boolean evaluated = false;
+		failed = false;
 
-		synchronized (this) {
-			isDone = true;
-			thread = null;
-			notifyAll();
+		try {
+			if(!skipped) {
+				evaluateRun();
+				evaluated = true;
+			}
+		} catch (RuntimeException e) {
+			// A broken agent is ranked last rather than leaving its generation waiting for it forever
+			fitness = Double.POSITIVE_INFINITY;
+			failed = true;
+			e.printStackTrace();
+		} finally {
+			// Counted before waking waitForSortedAgents, whose caller reads the generation's stats straight away
+			if(evaluated && generation != null) {
+				generation.agentFinished(this);
+			}
+
+			synchronized (this) {
+				isDone = true;
+				thread = null;
+				notifyAll();
+			}
 		}
 	}
 
-	private void flushValues() {
-		for(NeuronLayer layer : getAllLayers()) {
-			for(Neuron i : layer) {
-				i.setValue(0);
+	private void evaluateRun() {
+		final AgentRunEvent event = new AgentRunEvent();
+		event.begin();
+
+		evaluations = 0;
+
+		if(inputLayer == null) {
+			final GenomeScratch scratch = GenomeScratch.get(settings);
+			copyFlatWeights(scratch.getWeights());
+			evaluator = EvaluatorCompiler.get(settings);
+
+			if(evaluator != null) {
+				flatWeights = scratch.getWeights();
+			} else {
+				packedLayers = scratch.pack();
 			}
 		}
+
+		try {
+			fitness = evaluateFitness();
+		} finally {
+			// The scratch network belongs to the thread, the next agent it runs will overwrite it
+			if(inputLayer == null) {
+				packedLayers = null;
+				flatWeights = null;
+			}
+		}
+
+		AGENTS_EVALUATED.increment();
+		NETWORK_EVALUATIONS.add(evaluations);
+
+		event.end();
+		if(event.shouldCommit()) {
+			event.agent = threadName;
+			event.cycles = evaluations;
+			event.fitness = fitness;
+			event.goalReached = hasReachedGoal();
+			event.commit();
+		}
+	}
+
+	public void setGeneration(Generation<?> generation) {
+		setGeneration(generation, null);
+	}
+
+	public void setGeneration(Generation<?> generation, Executor executor) {
+		this.generation = generation;
+		this.executor = executor;
 	}
 
 	protected abstract double evaluateFitness();
 
+	// Only used for reporting, implementations with a goal state should say whether the last run reached it
+	public boolean hasReachedGoal() {
+		return false;
+	}
+
 	public int compareTo(Agent other) {
 		if(fitness == other.fitness) {
 			return 0;
@@ -184,14 +515,4 @@ public abstract class Agent implements Runnable, Comparable<Agent>, Serializable
 
 		return fitness > other.fitness ? 1 : -1;
 	}
-
-	private static class Utils {
-		private static final Random random = new Random();
-
-		static double mutateWeight(double parentWeight, double mutateRate) {
-			float percent = random.nextFloat() * 2 - 1;
-			parentWeight += parentWeight * (mutateRate * percent);
-			return parentWeight;
-		}
-	}
 }
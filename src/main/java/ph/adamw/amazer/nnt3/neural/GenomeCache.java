@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.neural;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Least recently used materialised genomes, the arrays handed out are shared so must never be written to. Genomes are
+ * only held weakly so the cache never keeps a dead line's parent chain alive, a genome that's collected drops its entry.
+ */
+final class GenomeCache {
+	private final Map<Key, double[]> weights;
+	private final ReferenceQueue<SeedGenome> collected = new ReferenceQueue<>();
+
+	GenomeCache(int capacity) {
+		weights = new LinkedHashMap<Key, double[]>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, double[]> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	synchronized double[] get(SeedGenome genome) {
+		purge();
+		return weights.get(new Key(genome, null));
+	}
+
+	synchronized void put(SeedGenome genome, double[] materialised) {
+		purge();
+		weights.put(new Key(genome, collected), materialised);
+	}
+
+	synchronized int size() {
+		purge();
+		return weights.size();
+	}
+
+	private void purge() {
+		Reference<? extends SeedGenome> key;
+		while((key = collected.poll()) != null) {
+			weights.remove(key);
+		}
+	}
+
+	// Compares genomes by identity, a cleared key only equals itself so it can still be removed
+	private static final class Key extends WeakReference<SeedGenome> {
+		private final int hash;
+
+		Key(SeedGenome genome, ReferenceQueue<SeedGenome> queue) {
+			super(genome, queue);
+			hash = System.identityHashCode(genome);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if(other == this) {
+				return true;
+			}
+
+			final SeedGenome genome = get();
+			return genome != null && other instanceof Key && ((Key) other).get() == genome;
+		}
+	}
+}
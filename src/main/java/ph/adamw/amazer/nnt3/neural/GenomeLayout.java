@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.neural;
+
+import ph.adamw.amazer.nnt3.neural.genetics.GeneticOperators;
+
+import java.util.SplittableRandom;
+
+/*
+ * Where each layer's parameters sit in a network flattened into one double[]. Every layer past the input layer is a
+ * block of its weights as [neuron][input] followed by one bias per neuron, the biases are there even when the settings
+ * aren't biased and just stay at 0. A recurrent layer's context units count as inputs after the previous layer's, so
+ * its rows are [neuron][input + context]. Networks with the same settings always have the same layout.
+ */
+final class GenomeLayout {
+	private final int[] sizes;
+	private final int[] fanIns;
+	private final int[] offsets;
+	private final int length;
+
+	GenomeLayout(NeuralNetSettings settings) {
+		this.sizes = settings.getLayerSizes();
+		this.fanIns = new int[sizes.length - 1];
+		this.offsets = new int[sizes.length - 1];
+
+		int offset = 0;
+		for(int i = 0; i < offsets.length; i ++) {
+			fanIns[i] = sizes[i] + (settings.isRecurrent(i) ? sizes[i + 1] : 0);
+			offsets[i] = offset;
+			offset += fanIns[i] * sizes[i + 1] + sizes[i + 1];
+		}
+
+		this.length = offset;
+	}
+
+	// Layers with weights, i.e. everything but the input layer
+	int layers() {
+		return offsets.length;
+	}
+
+	int outputs(int layer) {
+		return sizes[layer + 1];
+	}
+
+	// Weights per neuron, the inputs plus the context units for a recurrent layer
+	int fanIn(int layer) {
+		return fanIns[layer];
+	}
+
+	int weightOffset(int layer) {
+		return offsets[layer];
+	}
+
+	int biasOffset(int layer) {
+		return offsets[layer] + fanIns[layer] * sizes[layer + 1];
+	}
+
+	int length() {
+		return length;
+	}
+
+	// A new random network, weights are uniform in [-1, 1) and so are the biases when the settings ask for them
+	void randomise(boolean biased, SplittableRandom random, double[] into) {
+		for(int l = 0; l < offsets.length; l ++) {
+			final int biases = biasOffset(l);
+
+			for(int i = weightOffset(l); i < biases; i ++) {
+				into[i] = random.nextDouble() * 2 - 1;
+			}
+
+			for(int i = biases; i < biases + outputs(l); i ++) {
+				into[i] = biased ? random.nextDouble() * 2 - 1 : 0;
+			}
+		}
+	}
+
+	// Biases are only touched when they're in use, otherwise additive mutations would give unbiased networks biases
+	void mutate(NeuralNetSettings settings, double rate, SplittableRandom random, double[] weights) {
+		if(settings.isBiased()) {
+			GeneticOperators.mutate(settings.getMutation(), rate, weights, 0, length, random);
+			return;
+		}
+
+		for(int l = 0; l < offsets.length; l ++) {
+			GeneticOperators.mutate(settings.getMutation(), rate, weights, weightOffset(l), biasOffset(l) - weightOffset(l), random);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.neural;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/*
+ * One thread's buffers for evaluating seeded and off-heap agents: the flat weights and a set of packed layers to load
+ * them into.
+ * Agents borrow them for the length of their run so a thread holds one network's worth of weights per settings it has
+ * run. Shared pools interleave the agents of every loaded evolution, so each thread keeps one per settings rather than
+ * remaking them whenever the next task is from a different evolution. Settings are weak keys so a closed evolution's
+ * scratch goes with it, which is why the scratch doesn't refer back to them.
+ */
+final class GenomeScratch {
+	private static final ThreadLocal<Map<NeuralNetSettings, GenomeScratch>> SCRATCH = ThreadLocal.withInitial(WeakHashMap::new);
+
+	private final GenomeLayout layout;
+
+	private final double[] weights;
+	private final PackedLayer[] layers;
+
+	// Second parent's weights for crossover, most evolutions never cross so it's made on first use
+	private double[] spareWeights;
+
+	private GenomeScratch(NeuralNetSettings settings) {
+		this.layout = new GenomeLayout(settings);
+		this.weights = new double[layout.length()];
+		this.layers = new PackedLayer[layout.layers()];
+
+		for(int i = 0; i < layers.length; i ++) {
+			layers[i] = new PackedLayer(layout.fanIn(i), layout.outputs(i), settings.getActivationFunction(i), settings.getApproximation(), settings.getPrecision());
+		}
+	}
+
+	// The calling thread's scratch for agents with these settings, NeuralNetSettings compares by identity
+	static GenomeScratch get(NeuralNetSettings settings) {
+		return SCRATCH.get().computeIfAbsent(settings, GenomeScratch::new);
+	}
+
+	GenomeLayout getLayout() {
+		return layout;
+	}
+
+	// Flat weights in the layout's order, filled in by whoever borrows the scratch
+	double[] getWeights() {
+		return weights;
+	}
+
+	double[] getSpareWeights() {
+		if(spareWeights == null) {
+			spareWeights = new double[layout.length()];
+		}
+
+		return spareWeights;
+	}
+
+	// Loads the scratch weights into the layers, they're valid until the next pack on this thread
+	PackedLayer[] pack() {
+		for(int i = 0; i < layers.length; i ++) {
+			layers[i].load(weights, layout.weightOffset(i), weights, layout.biasOffset(i));
+		}
+
+		return layers;
+	}
+}
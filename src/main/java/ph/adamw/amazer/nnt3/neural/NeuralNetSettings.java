@@ -24,21 +24,182 @@
 
 package ph.adamw.amazer.nnt3.neural;
 
-import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Getter;
+import lombok.ToString;
+import ph.adamw.amazer.nnt3.neural.genetics.GeneticOperators;
 import ph.adamw.amazer.nnt3.neural.neuron.ActivationFunction;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
-@AllArgsConstructor
 @Getter
+@ToString
 public class NeuralNetSettings implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/*
+	 * What inference runs at, weights are always mutated at full precision and only packed down to this once an agent's
+	 * weights are final. FLOAT rounds weights and activations to float. INT8 quantises each layer's weights against
+	 * that layer's largest weight and sums each neuron's inputs in float, its activations are stored as doubles like
+	 * DOUBLE's. Only inference gets cheaper: with OBJECTS storage the full precision neuron graph is kept as well as the
+	 * packed copy, so agents take more memory than with DOUBLE, not less. SEEDED or OFF_HEAP storage only keep the
+	 * packed copy per thread.
+	 */
+	public enum Precision {
+		DOUBLE,
+		FLOAT,
+		INT8
+	}
+
+	/*
+	 * How each agent's weights are held. OBJECTS is a neuron graph per agent. SEEDED only keeps the parent, the seed of
+	 * the mutation that made the agent from it and the rate, the weights are replayed from that chain into a per-thread
+	 * buffer just before the agent is evaluated. OFF_HEAP keeps each generation's weights in one direct buffer outside
+	 * the heap, agents are views of their slot in it.
+	 */
+	public enum Storage {
+		OBJECTS,
+		SEEDED,
+		OFF_HEAP
+	}
+
 	private final int inputs;
-	private final int hiddenLayersAmount;
-	private final int hiddenLayersSize;
 	private final int outputs;
 
+	// One entry per hidden layer
+	private final int[] hiddenLayerSizes;
+
+	// One per hidden layer then one for the output layer
+	private final ActivationFunction[] activationFunctions;
+
+	/*
+	 * One per hidden layer. A recurrent layer has Elman style context units holding its activations from the last
+	 * evaluation, every neuron in it takes those as extra inputs with their own weights. The context lives in the state
+	 * an agent is evaluated against so it's cleared whenever that state is.
+	 */
+	private final boolean[] recurrentLayers;
+
+	// Whether every hidden and output neuron gets a bias that's mutated along with its weights
+	private final boolean biased;
+
+	// A multiplier on each weight for UNIFORM mutation, a percentage standard deviation for GAUSSIAN and SPARSE
 	private final double mutationRate;
 
-	private final ActivationFunction activationFunction;
+	private final GeneticOperators.Mutation mutation;
+
+	// How two parents are mixed, NONE breeds each child from a single parent
+	private final GeneticOperators.Crossover crossover;
+
+	private final ActivationFunction.Approximation approximation;
+
+	private final Precision precision;
+
+	private final Storage storage;
+
+	// A plain network with every hidden layer the same width and activation, the rest left at the builder's defaults
+	public NeuralNetSettings(int inputs, int hiddenLayersAmount, int hiddenLayersSize, int outputs, double mutationRate, ActivationFunction activationFunction) {
+		this(inputs, uniform(hiddenLayersAmount, hiddenLayersSize), uniform(hiddenLayersAmount + 1, activationFunction), null, outputs, false, mutationRate, GeneticOperators.Mutation.UNIFORM, GeneticOperators.Crossover.NONE, ActivationFunction.Approximation.EXACT, Precision.DOUBLE, Storage.OBJECTS);
+	}
+
+	/**
+	 * Use builder(), every option past the shape of the network has a default there.
+	 * @param hiddenLayerSizes The width of each hidden layer, can be empty to connect the inputs straight to the outputs
+	 * @param activationFunctions One for each hidden layer followed by one for the output layer
+	 * @param recurrentLayers Whether each hidden layer is recurrent, see isRecurrent. Null for none.
+	 */
+	@Builder
+	private NeuralNetSettings(int inputs, int[] hiddenLayerSizes, ActivationFunction[] activationFunctions, boolean[] recurrentLayers, int outputs, boolean biased, double mutationRate, GeneticOperators.Mutation mutation, GeneticOperators.Crossover crossover, ActivationFunction.Approximation approximation, Precision precision, Storage storage) {
+		if(recurrentLayers == null) {
+			recurrentLayers = new boolean[hiddenLayerSizes.length];
+		}
+
+		if(storage == Storage.SEEDED && crossover != GeneticOperators.Crossover.NONE) {
+			throw new IllegalArgumentException("Seeded genomes only have one parent so can't use crossover!");
+		}
+
+		if(activationFunctions.length != hiddenLayerSizes.length + 1) {
+			throw new IllegalArgumentException("Expected " + (hiddenLayerSizes.length + 1) + " activation functions, one per hidden layer and one for the outputs, but got " + activationFunctions.length + "!");
+		}
+
+		if(recurrentLayers.length != hiddenLayerSizes.length) {
+			throw new IllegalArgumentException("Expected " + hiddenLayerSizes.length + " recurrent flags, one per hidden layer, but got " + recurrentLayers.length + "!");
+		}
+
+		this.inputs = inputs;
+		this.hiddenLayerSizes = hiddenLayerSizes.clone();
+		this.activationFunctions = activationFunctions.clone();
+		this.recurrentLayers = recurrentLayers.clone();
+		this.outputs = outputs;
+		this.biased = biased;
+		this.mutationRate = mutationRate;
+		this.approximation = approximation;
+		this.precision = precision;
+		this.storage = storage;
+		this.mutation = mutation;
+		this.crossover = crossover;
+	}
+
+	public int getHiddenLayersAmount() {
+		return hiddenLayerSizes.length;
+	}
+
+	public int getHiddenLayerSize(int layer) {
+		return hiddenLayerSizes[layer];
+	}
+
+	// Hidden layers are 0 to getHiddenLayersAmount() - 1, the output layer is getHiddenLayersAmount()
+	public ActivationFunction getActivationFunction(int layer) {
+		return activationFunctions[layer];
+	}
+
+	// Same numbering as getActivationFunction, the output layer is never recurrent
+	public boolean isRecurrent(int layer) {
+		return layer < recurrentLayers.length && recurrentLayers[layer];
+	}
+
+	// Arrays are copied in and out so settings shared between evolutions can't be changed under them
+	public int[] getHiddenLayerSizes() {
+		return hiddenLayerSizes.clone();
+	}
+
+	public ActivationFunction[] getActivationFunctions() {
+		return activationFunctions.clone();
+	}
+
+	public boolean[] getRecurrentLayers() {
+		return recurrentLayers.clone();
+	}
+
+	// Input layer first, then each hidden layer, then the output layer
+	public int[] getLayerSizes() {
+		final int[] ret = new int[hiddenLayerSizes.length + 2];
+
+		ret[0] = inputs;
+		System.arraycopy(hiddenLayerSizes, 0, ret, 1, hiddenLayerSizes.length);
+		ret[ret.length - 1] = outputs;
+
+		return ret;
+	}
+
+	// Lombok fills in the rest, these are the defaults for everything added since the plain constructor
+	public static class NeuralNetSettingsBuilder {
+		private GeneticOperators.Mutation mutation = GeneticOperators.Mutation.UNIFORM;
+		private GeneticOperators.Crossover crossover = GeneticOperators.Crossover.NONE;
+		private ActivationFunction.Approximation approximation = ActivationFunction.Approximation.EXACT;
+		private Precision precision = Precision.DOUBLE;
+		private Storage storage = Storage.OBJECTS;
+	}
+
+	private static int[] uniform(int amount, int size) {
+		final int[] ret = new int[amount];
+		Arrays.fill(ret, size);
+		return ret;
+	}
+
+	private static ActivationFunction[] uniform(int amount, ActivationFunction function) {
+		final ActivationFunction[] ret = new ActivationFunction[amount];
+		Arrays.fill(ret, function);
+		return ret;
+	}
 }
@@ -0,0 +1,175 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.neural;
+
+import ph.adamw.amazer.nnt3.neural.kernel.DenseKernel;
+import ph.adamw.amazer.nnt3.neural.kernel.DenseKernels;
+import ph.adamw.amazer.nnt3.neural.neuron.ActivationFunction;
+import ph.adamw.amazer.nnt3.neural.neuron.Neuron;
+import ph.adamw.amazer.nnt3.neural.neuron.NeuronLayer;
+
+/*
+ * A copy of one layer's incoming weights as a flat [neuron][input] array in the precision picked in the settings, used
+ * for inference. The neuron and connection objects, or a seeded genome, stay the full precision copy that's mutated.
+ */
+class PackedLayer {
+	// Including the context units for a recurrent layer, see GenomeLayout
+	private final int inputs;
+	private final int outputs;
+
+	private final NeuralNetSettings.Precision precision;
+	private final ActivationFunction activationFunction;
+	private final ActivationFunction.Approximation approximation;
+
+	// Only the array for the layer's precision is allocated
+	private final double[] doubles;
+	private final float[] floats;
+	private final byte[] quantised;
+
+	// Always kept at full precision, there's only one per neuron
+	private final double[] biases;
+
+	// Int8 weights are stored as round(weight / scale) with the scale picked so the largest weight in the layer is 127
+	private float scale = 1;
+
+	PackedLayer(NeuronLayer layer, int inputs, NeuralNetSettings.Precision precision) {
+		this(inputs, layer.size(), layer.getActivationFunction(), layer.getApproximation(), precision);
+
+		final double[] weights = new double[inputs * outputs];
+		final double[] biases = new double[outputs];
+
+		for(int i = 0; i < outputs; i ++) {
+			final Neuron neuron = layer.get(i);
+			biases[i] = neuron.getBias();
+
+			for(int k = 0; k < inputs; k ++) {
+				weights[i * inputs + k] = neuron.getConnections().get(k).getWeight();
+			}
+		}
+
+		load(weights, 0, biases, 0);
+	}
+
+	// An empty layer for load to fill in, so the same buffers can be reused for many sets of weights
+	PackedLayer(int inputs, int outputs, ActivationFunction activationFunction, ActivationFunction.Approximation approximation, NeuralNetSettings.Precision precision) {
+		this.inputs = inputs;
+		this.outputs = outputs;
+		this.precision = precision;
+		this.activationFunction = activationFunction;
+		this.approximation = approximation;
+
+		doubles = precision == NeuralNetSettings.Precision.DOUBLE ? new double[inputs * outputs] : null;
+		floats = precision == NeuralNetSettings.Precision.FLOAT ? new float[inputs * outputs] : null;
+		quantised = precision == NeuralNetSettings.Precision.INT8 ? new byte[inputs * outputs] : null;
+		biases = new double[outputs];
+	}
+
+	// Replaces the layer's weights with [neuron][input] weights and one bias per neuron from the given offsets
+	void load(double[] weights, int weightOffset, double[] biases, int biasOffset) {
+		final int length = inputs * outputs;
+		System.arraycopy(biases, biasOffset, this.biases, 0, outputs);
+
+		switch (precision) {
+			case FLOAT: {
+				for(int i = 0; i < length; i ++) {
+					floats[i] = (float) weights[weightOffset + i];
+				}
+			} break;
+
+			case INT8: {
+				double max = 0;
+				for(int i = 0; i < length; i ++) {
+					max = Math.max(max, Math.abs(weights[weightOffset + i]));
+				}
+
+				scale = max == 0 ? 1 : (float) (max / 127);
+
+				for(int i = 0; i < length; i ++) {
+					quantised[i] = (byte) Math.round(weights[weightOffset + i] / scale);
+				}
+			} break;
+
+			default: {
+				System.arraycopy(weights, weightOffset, doubles, 0, length);
+			}
+		}
+	}
+
+	// Each neuron's sum starts from its last value in to, then the layer is activated at once
+	void feedForward(double[] from, double[] to) {
+		final DenseKernel kernel = DenseKernels.get();
+
+		switch (precision) {
+			case FLOAT: {
+				kernel.multiplyAccumulate(floats, from, to, inputs, outputs);
+				addBiases(to);
+				kernel.activate(activationFunction, approximation, to, outputs);
+
+				// Activations are kept to float precision too so the next layer sees what a float32 network would
+				for(int i = 0; i < outputs; i ++) {
+					to[i] = (float) to[i];
+				}
+			} break;
+
+			case INT8: {
+				for(int i = 0; i < outputs; i ++) {
+					final int offset = i * inputs;
+					float sum = 0;
+
+					for(int k = 0; k < inputs; k ++) {
+						sum += (float) from[k] * quantised[offset + k];
+					}
+
+					to[i] += sum * scale;
+				}
+
+				addBiases(to);
+				kernel.activate(activationFunction, approximation, to, outputs);
+			} break;
+
+			default: {
+				kernel.multiplyAccumulate(doubles, from, to, inputs, outputs);
+				addBiases(to);
+				kernel.activate(activationFunction, approximation, to, outputs);
+			}
+		}
+	}
+
+	/*
+	 * For recurrent layers, whose weights read the previous layer then the context. Both are copied into the context
+	 * buffer, which has to be inputs long, so the layer's last activations are kept aside before being overwritten.
+	 */
+	void feedForwardRecurrent(double[] from, double[] to, double[] context) {
+		System.arraycopy(from, 0, context, 0, inputs - outputs);
+		System.arraycopy(to, 0, context, inputs - outputs, outputs);
+		feedForward(context, to);
+	}
+
+	private void addBiases(double[] to) {
+		for(int i = 0; i < outputs; i ++) {
+			to[i] += biases[i];
+		}
+	}
+}
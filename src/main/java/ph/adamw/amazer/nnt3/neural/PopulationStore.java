@@ -0,0 +1,118 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.neural;
+
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/*
+ * Weights for a whole generation in one direct buffer outside the Java heap, one GenomeLayout sized slot per agent in
+ * the order they were made. There are two buffers, the generation being made is written into one while its parents are
+ * read from the other, and they swap every generation so nothing is reallocated once the first two have been made.
+ *
+ * Slots are only good for the generation they were made in and the one after, reading an older one is an error since
+ * its weights have been overwritten by then.
+ */
+public final class PopulationStore {
+	private final GenomeLayout layout;
+
+	@Getter
+	private final int capacity;
+
+	private DoubleBuffer current;
+	private DoubleBuffer previous;
+
+	@Getter
+	private int epoch = 0;
+	private int next = 0;
+
+	public PopulationStore(NeuralNetSettings settings, int capacity) {
+		this.layout = new GenomeLayout(settings);
+		this.capacity = capacity;
+
+		final long bytes = (long) capacity * layout.length() * Double.BYTES;
+		if(bytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A generation of " + capacity + " agents with " + layout.length() + " weights each is over the 2GB a direct buffer can hold!");
+		}
+
+		current = allocate((int) bytes);
+		previous = allocate((int) bytes);
+	}
+
+	// Called before making each generation, the last one's slots become the parents and the ones before are reused
+	public synchronized void nextGeneration() {
+		final DoubleBuffer t = previous;
+		previous = current;
+		current = t;
+
+		epoch ++;
+		next = 0;
+	}
+
+	// Makes the current generation over again, for when the last one made was thrown away before it finished
+	public synchronized void restartGeneration() {
+		next = 0;
+	}
+
+	synchronized int allocate() {
+		if(next == capacity) {
+			throw new IllegalStateException("The population store only has room for " + capacity + " agents a generation!");
+		}
+
+		return next ++;
+	}
+
+	void write(int epoch, int slot, double[] from) {
+		// Each access works on its own duplicate so the shared buffers' positions are never touched
+		final DoubleBuffer view = buffer(epoch).duplicate();
+		view.position(slot * layout.length());
+		view.put(from, 0, layout.length());
+	}
+
+	void read(int epoch, int slot, double[] into) {
+		final DoubleBuffer view = buffer(epoch).duplicate();
+		view.position(slot * layout.length());
+		view.get(into, 0, layout.length());
+	}
+
+	private synchronized DoubleBuffer buffer(int epoch) {
+		if(epoch == this.epoch) {
+			return current;
+		}
+
+		if(epoch == this.epoch - 1) {
+			return previous;
+		}
+
+		throw new IllegalStateException("Weights from generation " + epoch + " have been overwritten, the store is on generation " + this.epoch + "!");
+	}
+
+	private static DoubleBuffer allocate(int bytes) {
+		return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+	}
+}
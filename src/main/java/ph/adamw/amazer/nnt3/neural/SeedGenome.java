@@ -0,0 +1,211 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.neural;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.SplittableRandom;
+
+/*
+ * An agent's weights stored as the mutation that made them: the parent's genome, the seed the mutation was drawn from
+ * and its rate. A genome without a parent is a random network drawn from its seed. The weights are rebuilt by replaying
+ * the chain from the nearest ancestor whose weights are cached, and since parents are picked from the best of the last
+ * generation the cache keeps those elites' weights so a child normally only costs one pass over its parent's.
+ *
+ * A genome is a few dozen bytes whatever the network's size, so large populations and their saves stay small. Lines
+ * that die out are collected like any other object, only ancestors of living genomes are kept.
+ *
+ * Chains are cut every CHECKPOINT_DEPTH generations: a parent that deep is materialised once into a root holding its
+ * weights, which its children hang off instead. That bounds both how far a replay can go after a cache miss or a load
+ * and how deep the chain is when it's saved.
+ */
+public final class SeedGenome implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	// Number of materialised weight arrays kept, -Dnnt3.genomeCache overrides it
+	private static final GenomeCache CACHE = new GenomeCache(Integer.getInteger("nnt3.genomeCache", 64));
+
+	private static final ThreadLocal<Boolean> WRITING_ANCESTORS = ThreadLocal.withInitial(() -> false);
+
+	// Longest chain before it's cut with a checkpoint, -Dnnt3.genomeCheckpoint overrides it
+	static final int CHECKPOINT_DEPTH = Math.max(1, Integer.getInteger("nnt3.genomeCheckpoint", 32));
+
+	// Written by hand in writeObject so saving a long chain doesn't recurse once per link
+	@Getter
+	private transient SeedGenome parent;
+
+	@Getter
+	private final long seed;
+
+	@Getter
+	private final double mutationRate;
+
+	// Generations since the root, i.e. how long the chain is without any cache hits
+	@Getter
+	private final int depth;
+
+	// Only set on checkpoints, the weights this root starts from instead of a random network
+	private final double[] checkpoint;
+
+	// The checkpoint standing in for this genome as a parent once it's CHECKPOINT_DEPTH deep, made on first use
+	private transient SeedGenome checkpointed;
+
+	SeedGenome(SeedGenome parent, long seed, double mutationRate) {
+		this.parent = parent;
+		this.seed = seed;
+		this.mutationRate = mutationRate;
+		this.depth = parent == null ? 0 : parent.depth + 1;
+		this.checkpoint = null;
+	}
+
+	private SeedGenome(double[] checkpoint) {
+		this.parent = null;
+		this.seed = 0;
+		this.mutationRate = 0;
+		this.depth = 0;
+		this.checkpoint = checkpoint;
+	}
+
+	/**
+	 * A new child of the given parent, or a new random network if it's null. A parent at CHECKPOINT_DEPTH is swapped for
+	 * its checkpoint, which is shared by all of its children.
+	 */
+	static SeedGenome child(SeedGenome parent, long seed, double mutationRate, GenomeLayout layout, NeuralNetSettings settings) {
+		if(parent != null && parent.depth >= CHECKPOINT_DEPTH) {
+			parent = parent.checkpoint(layout, settings);
+		}
+
+		return new SeedGenome(parent, seed, mutationRate);
+	}
+
+	private synchronized SeedGenome checkpoint(GenomeLayout layout, NeuralNetSettings settings) {
+		if(checkpointed == null) {
+			final double[] weights = new double[layout.length()];
+			materialise(layout, settings, weights);
+			checkpointed = new SeedGenome(weights);
+		}
+
+		return checkpointed;
+	}
+
+	/**
+	 * Writes this genome's weights into the given array, which has to be layout.length() long. The parent's weights are
+	 * cached on the way since they're likely to be asked for again by this genome's siblings.
+	 */
+	void materialise(GenomeLayout layout, NeuralNetSettings settings, double[] into) {
+		final ArrayDeque<SeedGenome> chain = new ArrayDeque<>();
+		double[] base = null;
+
+		// Walk up to the root or to the first ancestor with cached weights, whichever comes first
+		SeedGenome current = this;
+		while(true) {
+			chain.push(current);
+
+			if(current.parent == null) {
+				break;
+			}
+
+			base = CACHE.get(current.parent);
+			if(base != null) {
+				break;
+			}
+
+			current = current.parent;
+		}
+
+		final SeedGenome first = chain.pop();
+
+		if(base == null && first.checkpoint != null) {
+			System.arraycopy(first.checkpoint, 0, into, 0, layout.length());
+		} else if(base == null) {
+			layout.randomise(settings.isBiased(), new SplittableRandom(first.seed), into);
+		} else {
+			System.arraycopy(base, 0, into, 0, layout.length());
+			layout.mutate(settings, first.mutationRate, new SplittableRandom(first.seed), into);
+		}
+
+		while(!chain.isEmpty()) {
+			final SeedGenome next = chain.pop();
+
+			// Only the last step's parent is kept, caching the whole chain would push the elites out
+			if(next == this) {
+				CACHE.put(parent, into.clone());
+			}
+
+			layout.mutate(settings, next.mutationRate, new SplittableRandom(next.seed), into);
+		}
+	}
+
+	/*
+	 * A genome's fields are followed by a count then that many genomes, the last of which is its parent. The first genome
+	 * written from a chain writes every ancestor root first, each of those only writes its parent which is then always
+	 * already in the stream and goes out as a back reference. So the stream never nests more than two genomes deep and
+	 * each link is written once.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+
+		if(WRITING_ANCESTORS.get()) {
+			out.writeInt(parent == null ? 0 : 1);
+
+			if(parent != null) {
+				out.writeObject(parent);
+			}
+
+			return;
+		}
+
+		final ArrayDeque<SeedGenome> ancestors = new ArrayDeque<>();
+		for(SeedGenome current = parent; current != null; current = current.parent) {
+			ancestors.push(current);
+		}
+
+		out.writeInt(ancestors.size());
+		WRITING_ANCESTORS.set(true);
+
+		try {
+			for(SeedGenome ancestor : ancestors) {
+				out.writeObject(ancestor);
+			}
+		} finally {
+			WRITING_ANCESTORS.set(false);
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+
+		final int ancestors = in.readInt();
+
+		for(int i = 0; i < ancestors; i ++) {
+			parent = (SeedGenome) in.readObject();
+		}
+	}
+}
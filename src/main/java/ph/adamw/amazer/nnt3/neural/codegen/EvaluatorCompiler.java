@@ -0,0 +1,251 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.neural.codegen;
+
+import ph.adamw.amazer.nnt3.neural.NeuralNetSettings;
+import ph.adamw.amazer.nnt3.neural.kernel.DenseKernels;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Compiles a NetworkEvaluator for each topology the first time it's asked for, in memory with the JDK's compiler, and
+ * shares it between every agent with that topology. Only double precision networks are specialised. Anything that
+ * can't be compiled, e.g. when running on a JRE without javac, gets null and agents fall back to their packed layers.
+ * -Dnnt3.evaluator=interpreted turns it off.
+ *
+ * The generated code unrolls small layers into straight-line scalar maths, which wins while rows are short. Once any
+ * layer reads KERNEL_FAN_IN or more values (previous layer plus context) and the Vector API kernel is loaded, the
+ * packed layers and that kernel win instead, so such topologies aren't compiled. -Dnnt3.kernelFanIn moves the cut-off.
+ */
+public final class EvaluatorCompiler {
+	private static final String PACKAGE = EvaluatorCompiler.class.getPackage().getName() + ".generated";
+
+	private static final boolean ENABLED = !"interpreted".equals(System.getProperty("nnt3.evaluator"));
+
+	static final int KERNEL_FAN_IN = Integer.getInteger("nnt3.kernelFanIn", 64);
+
+	// Failures are cached too so a topology is only ever tried once. Each compile runs on the thread that first asked for
+	// it, outside the map, anyone else asking for the same topology waits on its task.
+	private static final Map<String, FutureTask<NetworkEvaluator>> EVALUATORS = new ConcurrentHashMap<>();
+	private static final AtomicInteger CLASS_COUNT = new AtomicInteger();
+
+	// Agents ask for their evaluator on every run, so whatever goes wrong is only reported the first time
+	private static final AtomicBoolean WARNED = new AtomicBoolean();
+
+	private EvaluatorCompiler() {}
+
+	// The shared evaluator for the settings' topology, or null if agents with these settings have to be interpreted
+	public static NetworkEvaluator get(NeuralNetSettings settings) {
+		if(!ENABLED || settings.getPrecision() != NeuralNetSettings.Precision.DOUBLE || prefersKernel(settings)) {
+			return null;
+		}
+
+		final String key = EvaluatorSource.key(settings);
+		FutureTask<NetworkEvaluator> task = EVALUATORS.get(key);
+
+		if(task == null) {
+			final FutureTask<NetworkEvaluator> created = new FutureTask<>(() -> compile(settings));
+			task = EVALUATORS.putIfAbsent(key, created);
+
+			if(task == null) {
+				task = created;
+				created.run();
+			}
+		}
+
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			warn("Failed to compile an evaluator for " + key + ", it will be interpreted.", e.getCause());
+			return null;
+		} catch (InterruptedException e) {
+			// Interpreted just this once, the compile carries on for whoever asks next
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	static boolean prefersKernel(NeuralNetSettings settings) {
+		if(!DenseKernels.isVectorised()) {
+			return false;
+		}
+
+		final int[] sizes = settings.getLayerSizes();
+
+		for(int i = 0; i < sizes.length - 1; i ++) {
+			if(sizes[i] + (settings.isRecurrent(i) ? sizes[i + 1] : 0) >= KERNEL_FAN_IN) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static NetworkEvaluator compile(NeuralNetSettings settings) {
+		final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+
+		if(javac == null) {
+			warn("No Java compiler available, networks will be interpreted.", null);
+			return null;
+		}
+
+		final String className = "Evaluator" + CLASS_COUNT.getAndIncrement();
+		final String source = EvaluatorSource.write(PACKAGE, className, settings);
+
+		final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		final MemoryFileManager files = new MemoryFileManager(javac.getStandardFileManager(diagnostics, null, null));
+
+		// The generated class only needs this package's interface and the activation functions, and there's nothing for
+		// annotation processors such as Lombok on the classpath to do
+		final String classpath = location(NetworkEvaluator.class) + File.pathSeparator + System.getProperty("java.class.path");
+
+		final Boolean compiled = javac.getTask(null, files, diagnostics, Arrays.asList("-classpath", classpath, "-g:none", "-proc:none"), null,
+				Collections.singletonList(new SourceFile(PACKAGE + "." + className, source))).call();
+
+		if(compiled == null || !compiled) {
+			final StringBuilder sb = new StringBuilder("Failed to compile an evaluator for ").append(EvaluatorSource.key(settings)).append(", it will be interpreted.");
+
+			for(Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+				sb.append('\n').append(diagnostic);
+			}
+
+			warn(sb.toString(), null);
+			return null;
+		}
+
+		try {
+			final Class<?> type = new MemoryClassLoader(files.classes).loadClass(PACKAGE + "." + className);
+			return (NetworkEvaluator) type.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			warn("Failed to load the evaluator for " + EvaluatorSource.key(settings) + ", it will be interpreted.", e);
+			return null;
+		}
+	}
+
+	private static void warn(String message, Throwable cause) {
+		if(!WARNED.compareAndSet(false, true)) {
+			return;
+		}
+
+		System.err.println(message);
+
+		if(cause != null) {
+			cause.printStackTrace();
+		}
+	}
+
+	private static String location(Class<?> type) {
+		try {
+			return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+		} catch (Exception e) {
+			return "";
+		}
+	}
+
+	private static class SourceFile extends SimpleJavaFileObject {
+		private final String source;
+
+		SourceFile(String className, String source) {
+			super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+			this.source = source;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return source;
+		}
+	}
+
+	private static class ClassFile extends SimpleJavaFileObject {
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		ClassFile(String className) {
+			super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+		}
+
+		@Override
+		public OutputStream openOutputStream() {
+			return bytes;
+		}
+	}
+
+	// Keeps compiled classes in memory rather than writing them out
+	private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+		private final Map<String, ClassFile> classes = new ConcurrentHashMap<>();
+
+		MemoryFileManager(StandardJavaFileManager files) {
+			super(files);
+		}
+
+		@Override
+		public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+			final ClassFile file = new ClassFile(className);
+			classes.put(className, file);
+			return file;
+		}
+	}
+
+	private static class MemoryClassLoader extends ClassLoader {
+		private final Map<String, ClassFile> classes;
+
+		MemoryClassLoader(Map<String, ClassFile> classes) {
+			super(NetworkEvaluator.class.getClassLoader());
+			this.classes = classes;
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			final ClassFile file = classes.get(name);
+
+			if(file == null) {
+				throw new ClassNotFoundException(name);
+			}
+
+			final byte[] bytes = file.bytes.toByteArray();
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.neural.codegen;
+
+import ph.adamw.amazer.nnt3.neural.NeuralNetSettings;
+import ph.adamw.amazer.nnt3.neural.neuron.ActivationFunction;
+
+/*
+ * Writes the Java source of an evaluator for one topology. Every size and offset is a literal, each layer is its own
+ * small method so the JIT compiles them independently, and narrow layers have the dot product fully unrolled. The maths
+ * and its order are the same as PackedLayer with the scalar kernel, so outputs match it exactly apart from approximated
+ * tanh which goes through the single value form and can differ in the last bit.
+ */
+final class EvaluatorSource {
+	// Wider layers keep the inner loop, unrolling them would only bloat the method past what the JIT will compile
+	private static final int UNROLL_LIMIT = 16;
+
+	private EvaluatorSource() {}
+
+	// Settings with the same key can share an evaluator
+	static String key(NeuralNetSettings settings) {
+		final StringBuilder sb = new StringBuilder();
+
+		for(int size : settings.getLayerSizes()) {
+			sb.append(size).append(',');
+		}
+
+		for(ActivationFunction function : settings.getActivationFunctions()) {
+			sb.append(function).append(',');
+		}
+
+		for(boolean recurrent : settings.getRecurrentLayers()) {
+			sb.append(recurrent).append(',');
+		}
+
+		return sb.append(settings.getApproximation()).append(',').append(settings.isBiased()).toString();
+	}
+
+	static String write(String packageName, String className, NeuralNetSettings settings) {
+		final int[] sizes = settings.getLayerSizes();
+		final StringBuilder sb = new StringBuilder();
+
+		sb.append("package ").append(packageName).append(";\n\n");
+		sb.append("public final class ").append(className).append(" implements ").append(NetworkEvaluator.class.getName()).append(" {\n");
+		sb.append("\t@Override\n");
+		sb.append("\tpublic void evaluate(double[] w, double[][] s) {\n");
+
+		// Context buffers come after the layers' in the state, in layer order, see Agent.newState
+		int context = sizes.length;
+		for(int l = 0; l < sizes.length - 1; l ++) {
+			sb.append("\t\tlayer").append(l).append("(w, s[").append(l).append("], s[").append(l + 1).append("]");
+
+			if(settings.isRecurrent(l)) {
+				sb.append(", s[").append(context ++).append("]");
+			}
+
+			sb.append(");\n");
+		}
+
+		sb.append("\t}\n");
+
+		// Same layout as GenomeLayout, each layer's [neuron][input + context] weights followed by its biases
+		int offset = 0;
+		for(int l = 0; l < sizes.length - 1; l ++) {
+			final int inputs = sizes[l];
+			final int outputs = sizes[l + 1];
+			final boolean recurrent = settings.isRecurrent(l);
+			final int fanIn = recurrent ? inputs + outputs : inputs;
+			final int biases = offset + fanIn * outputs;
+
+			sb.append("\n\tprivate static void layer").append(l).append("(double[] w, double[] in, double[] out");
+
+			// Only the context half of the buffer is used here, the inputs are read from where they already are
+			if(recurrent) {
+				sb.append(", double[] c) {\n");
+				sb.append("\t\tSystem.arraycopy(out, 0, c, ").append(inputs).append(", ").append(outputs).append(");\n");
+			} else {
+				sb.append(") {\n");
+			}
+
+			sb.append("\t\tfor(int i = 0; i < ").append(outputs).append("; i ++) {\n");
+			sb.append("\t\t\tfinal int o = ").append(offset).append(" + i * ").append(fanIn).append(";\n");
+			sb.append("\t\t\tdouble sum = out[i];\n");
+
+			dot(sb, "in", 0, inputs);
+
+			if(recurrent) {
+				dot(sb, "c", inputs, outputs);
+			}
+
+			// Unbiased networks keep their biases at 0 so adding them can be left out
+			if(settings.isBiased()) {
+				sb.append("\t\t\tsum += w[").append(biases).append(" + i];\n");
+			}
+
+			sb.append("\t\t\tout[i] = ").append(activation(settings.getActivationFunction(l), settings.getApproximation(), "sum")).append(";\n");
+			sb.append("\t\t}\n");
+			sb.append("\t}\n");
+
+			offset = biases + outputs;
+		}
+
+		return sb.append("}\n").toString();
+	}
+
+	// Adds values[from + k] * w[o + from + k] for k below count to sum
+	private static void dot(StringBuilder sb, String values, int from, int count) {
+		if(count <= UNROLL_LIMIT) {
+			for(int k = from; k < from + count; k ++) {
+				sb.append("\t\t\tsum += ").append(values).append('[').append(k).append("] * w[o + ").append(k).append("];\n");
+			}
+		} else {
+			sb.append("\t\t\tfor(int k = ").append(from).append("; k < ").append(from + count).append("; k ++) {\n");
+			sb.append("\t\t\t\tsum += ").append(values).append("[k] * w[o + k];\n");
+			sb.append("\t\t\t}\n");
+		}
+	}
+
+	// Exact functions are written out in full, approximations go through the enum so there's only one copy of the tables
+	private static String activation(ActivationFunction function, ActivationFunction.Approximation approximation, String x) {
+		switch (function) {
+			case SIGMOID: {
+				if(approximation == ActivationFunction.Approximation.EXACT) {
+					return "1 / (1 + Math.exp(-" + x + "))";
+				}
+			} break;
+
+			case TANH: {
+				if(approximation == ActivationFunction.Approximation.EXACT) {
+					return "Math.tanh(" + x + ")";
+				}
+			} break;
+
+			case RELU: return "Math.max(0, " + x + ")";
+			case LEAKY_RELU: return x + " > 0 ? " + x + " : " + x + " * " + ActivationFunction.LEAKY_SLOPE;
+			case HARD_SIGMOID: return "Math.max(0, Math.min(1, 0.2 * " + x + " + 0.5))";
+		}
+
+		return ActivationFunction.class.getName() + "." + function + ".activate(" + x + ", " + ActivationFunction.Approximation.class.getCanonicalName() + "." + approximation + ")";
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.neural.genetics;
+
+import java.util.SplittableRandom;
+
+/*
+ * Mutation and crossover over a run of a flat weight array, i.e. a whole network in GenomeLayout order. Each operator is
+ * one tight loop over primitives with the choice of operator made once outside it, so making a child costs about as much
+ * as copying its weights.
+ */
+public final class GeneticOperators {
+	public enum Mutation {
+		// Every weight moves by up to the rate times itself, the original NNt3 rule
+		UNIFORM,
+		// Every weight gets normally distributed noise, the rate is its standard deviation as a percentage of the [-1, 1]
+		// range new weights are drawn from, so the GUI's default of 15 is a standard deviation of 0.15
+		GAUSSIAN,
+		// Like GAUSSIAN but each weight only has a SPARSE_PROBABILITY chance of being touched at all
+		SPARSE
+	}
+
+	public enum Crossover {
+		NONE,
+		// Each weight comes from either parent with even odds
+		UNIFORM,
+		// Weights before a random cut come from the first parent and the rest from the second
+		SINGLE_POINT
+	}
+
+	public static final double SPARSE_PROBABILITY = 0.05;
+
+	// Standard deviation per unit of mutation rate for GAUSSIAN and SPARSE, i.e. the rate is a percentage
+	public static final double SIGMA_PER_RATE = 0.01;
+
+	/*
+	 * Tables for Marsaglia and Tsang's ziggurat with 128 layers. Nearly every normal is one random int, a table lookup,
+	 * a compare and a multiply, only the ~2% that land outside a layer's box need a log or exp.
+	 */
+	private static final int LAYERS = 128;
+	private static final double TAIL = 3.442619855899;
+	private static final double AREA = 9.91256303526217e-3;
+
+	private static final long[] KN = new long[LAYERS];
+	private static final double[] WN = new double[LAYERS];
+	private static final double[] FN = new double[LAYERS];
+
+	static {
+		final double m = 2147483648.0;
+		double dn = TAIL;
+		double tn = dn;
+		final double q = AREA / Math.exp(-0.5 * dn * dn);
+
+		KN[0] = (long) ((dn / q) * m);
+		KN[1] = 0;
+		WN[0] = q / m;
+		WN[LAYERS - 1] = dn / m;
+		FN[0] = 1;
+		FN[LAYERS - 1] = Math.exp(-0.5 * dn * dn);
+
+		for(int i = LAYERS - 2; i >= 1; i --) {
+			dn = Math.sqrt(-2 * Math.log(AREA / dn + Math.exp(-0.5 * dn * dn)));
+			KN[i + 1] = (long) ((dn / tn) * m);
+			tn = dn;
+			FN[i] = Math.exp(-0.5 * dn * dn);
+			WN[i] = dn / m;
+		}
+	}
+
+	private GeneticOperators() {}
+
+	public static void mutate(Mutation mutation, double rate, double[] weights, int offset, int length, SplittableRandom random) {
+		switch (mutation) {
+			case GAUSSIAN: gaussian(weights, offset, length, rate * SIGMA_PER_RATE, random); break;
+			case SPARSE: sparse(weights, offset, length, SPARSE_PROBABILITY, rate * SIGMA_PER_RATE, random); break;
+			default: uniform(weights, offset, length, rate, random);
+		}
+	}
+
+	/**
+	 * Writes a mix of the two parents into the given array, which can be either of the parents.
+	 * @param first Used for everything when the crossover is NONE
+	 */
+	public static void crossover(Crossover crossover, double[] first, double[] second, double[] into, int offset, int length, SplittableRandom random) {
+		switch (crossover) {
+			case UNIFORM: uniformCrossover(first, second, into, offset, length, random); break;
+			case SINGLE_POINT: singlePointCrossover(first, second, into, offset, length, random); break;
+			default: {
+				if(first != into) {
+					System.arraycopy(first, offset, into, offset, length);
+				}
+			}
+		}
+	}
+
+	public static void uniform(double[] weights, int offset, int length, double rate, SplittableRandom random) {
+		final int end = offset + length;
+
+		for(int i = offset; i < end; i ++) {
+			weights[i] += weights[i] * (rate * (random.nextDouble() * 2 - 1));
+		}
+	}
+
+	public static void gaussian(double[] weights, int offset, int length, double sigma, SplittableRandom random) {
+		final int end = offset + length;
+
+		for(int i = offset; i < end; i ++) {
+			weights[i] += sigma * nextGaussian(random);
+		}
+	}
+
+	/*
+	 * Gaussian noise on each weight with the given probability. Rather than a draw per weight the gap to the next
+	 * mutated weight is drawn from the geometric distribution, so the cost is in the weights changed, not the length.
+	 */
+	public static void sparse(double[] weights, int offset, int length, double probability, double sigma, SplittableRandom random) {
+		if(probability <= 0) {
+			return;
+		}
+
+		if(probability >= 1) {
+			gaussian(weights, offset, length, sigma, random);
+			return;
+		}
+
+		final double logMiss = Math.log(1 - probability);
+		final long end = (long) offset + length;
+
+		for(long i = offset + skip(logMiss, random); i < end; i += 1 + skip(logMiss, random)) {
+			weights[(int) i] += sigma * nextGaussian(random);
+		}
+	}
+
+	// One random long picks the parent for 64 weights at a time
+	public static void uniformCrossover(double[] first, double[] second, double[] into, int offset, int length, SplittableRandom random) {
+		final int end = offset + length;
+
+		for(int block = offset; block < end; block += 64) {
+			final long bits = random.nextLong();
+			final int blockEnd = Math.min(block + 64, end);
+
+			for(int i = block; i < blockEnd; i ++) {
+				into[i] = ((bits >>> (i - block)) & 1) == 0 ? first[i] : second[i];
+			}
+		}
+	}
+
+	public static void singlePointCrossover(double[] first, double[] second, double[] into, int offset, int length, SplittableRandom random) {
+		final int cut = random.nextInt(length + 1);
+
+		if(first != into) {
+			System.arraycopy(first, offset, into, offset, cut);
+		}
+
+		if(second != into) {
+			System.arraycopy(second, offset + cut, into, offset + cut, length - cut);
+		}
+	}
+
+	// Weights skipped before the next one that mutates, capped so stepping past the end can't overflow
+	private static long skip(double logMiss, SplittableRandom random) {
+		return (long) Math.min(Math.log(1 - random.nextDouble()) / logMiss, Integer.MAX_VALUE);
+	}
+
+	public static double nextGaussian(SplittableRandom random) {
+		int hz = random.nextInt();
+		int iz = hz & (LAYERS - 1);
+
+		// Inside the layer's box, by far the most common case
+		if(Math.abs((long) hz) < KN[iz]) {
+			return hz * WN[iz];
+		}
+
+		while(true) {
+			final double x = hz * WN[iz];
+
+			// The base layer's overhang is the tail beyond TAIL, sampled directly
+			if(iz == 0) {
+				double tx;
+				double ty;
+
+				do {
+					tx = -Math.log(1 - random.nextDouble()) / TAIL;
+					ty = -Math.log(1 - random.nextDouble());
+				} while(ty + ty < tx * tx);
+
+				return hz > 0 ? TAIL + tx : -TAIL - tx;
+			}
+
+			// In the wedge between the box and the curve
+			if(FN[iz] + random.nextDouble() * (FN[iz - 1] - FN[iz]) < Math.exp(-0.5 * x * x)) {
+				return x;
+			}
+
+			hz = random.nextInt();
+			iz = hz & (LAYERS - 1);
+
+			if(Math.abs((long) hz) < KN[iz]) {
+				return hz * WN[iz];
+			}
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.neural.kernel;
+
+import ph.adamw.amazer.nnt3.neural.neuron.ActivationFunction;
+
+/**
+ * The inner loops of a dense layer. Weights are a flat [neuron][input] array and the sums are added onto whatever is
+ * already in to, so a layer's sums start from its last values.
+ */
+public interface DenseKernel {
+	void multiplyAccumulate(double[] weights, double[] from, double[] to, int inputs, int outputs);
+
+	// Float weights but double sums, callers round the results themselves if they want float32 activations
+	void multiplyAccumulate(float[] weights, double[] from, double[] to, int inputs, int outputs);
+
+	void activate(ActivationFunction function, ActivationFunction.Approximation approximation, double[] values, int len);
+}
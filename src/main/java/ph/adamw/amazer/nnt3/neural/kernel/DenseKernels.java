@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.neural.kernel;
+
+/*
+ * Picks the dense kernel once at startup. The Vector API one is only built on JDK 17+ and only loads when the JVM is
+ * started with --add-modules jdk.incubator.vector, as javafx:run and the tests are there. Anywhere else, including any
+ * JDK 8 build, it falls back to the scalar loops. -Dnnt3.kernel=scalar forces the scalar kernel.
+ */
+public final class DenseKernels {
+	private static final String VECTOR_KERNEL = "ph.adamw.amazer.nnt3.neural.kernel.VectorKernel";
+
+	private static final DenseKernel KERNEL = select();
+
+	private DenseKernels() {}
+
+	public static DenseKernel get() {
+		return KERNEL;
+	}
+
+	// Whether the Vector API kernel was picked rather than the scalar loops
+	public static boolean isVectorised() {
+		return !(KERNEL instanceof ScalarKernel);
+	}
+
+	private static DenseKernel select() {
+		if("scalar".equals(System.getProperty("nnt3.kernel"))) {
+			return new ScalarKernel();
+		}
+
+		try {
+			return (DenseKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			// The incubator module isn't in the boot layer
+			return new ScalarKernel();
+		}
+	}
+}
@@ -24,17 +24,122 @@
 
 package ph.adamw.amazer.nnt3.neural.neuron;
 
-import java.io.Serializable;
+/*
+ * The activation functions a network can use. Being a closed set every call site sees the one class, and each function
+ * has a whole-layer kernel so the loop sits inside the switch rather than the other way round.
+ */
+public enum ActivationFunction {
+	SIGMOID,
+	TANH,
+	RELU,
+	LEAKY_RELU,
+	HARD_SIGMOID;
+
+	/*
+	 * How closely sigmoid and tanh are computed, the others are cheap enough that they're always exact. Math.exp is most
+	 * of the cost of running a small network so both approximations avoid it entirely.
+	 */
+	public enum Approximation {
+		EXACT,
+		// Linear interpolation in a table of sigmoid over [-8, 8], within ~4e-4 of exact and most of that is the clamping
+		TABLE,
+		// Pade style rational function, within ~2.5% and just a few multiplies and a divide
+		RATIONAL
+	}
+
+	public static final double LEAKY_SLOPE = 0.01;
+
+	private static final double TABLE_RANGE = 8;
+	private static final int TABLE_SIZE = 4096;
+	private static final double TABLE_SCALE = TABLE_SIZE / (2 * TABLE_RANGE);
+	private static final double[] SIGMOID_TABLE = new double[TABLE_SIZE + 2];
+
+	static {
+		for(int i = 0; i < SIGMOID_TABLE.length; i ++) {
+			SIGMOID_TABLE[i] = 1 / (1 + Math.exp(-(i / TABLE_SCALE - TABLE_RANGE)));
+		}
+	}
+
+	public double activate(double value) {
+		return activate(value, Approximation.EXACT);
+	}
+
+	public double activate(double value, Approximation approximation) {
+		switch (this) {
+			case SIGMOID: return sigmoid(value, approximation);
+			case TANH: return 2 * sigmoid(2 * value, approximation) - 1;
+			case RELU: return value > 0 ? value : 0;
+			case LEAKY_RELU: return value > 0 ? value : value * LEAKY_SLOPE;
+			case HARD_SIGMOID: return Math.max(0, Math.min(1, 0.2 * value + 0.5));
+		}
 
-public abstract class ActivationFunction implements Serializable {
-	public static ActivationFunction getSigmoid() {
-		return new ActivationFunction() {
-			@Override
-			public double activate(double value) {
-				return 1 / (1 + Math.exp(-value));
-			}
-		};
+		throw new IllegalStateException();
 	}
 
-	public abstract double activate(double value);
+	public void activate(double[] values, int len) {
+		activate(values, len, Approximation.EXACT);
+	}
+
+	// Activates the first len values in place
+	public void activate(double[] values, int len, Approximation approximation) {
+		switch (this) {
+			case SIGMOID: {
+				switch (approximation) {
+					case EXACT: for(int i = 0; i < len; i ++) values[i] = 1 / (1 + Math.exp(-values[i])); break;
+					case TABLE: for(int i = 0; i < len; i ++) values[i] = sigmoidTable(values[i]); break;
+					case RATIONAL: for(int i = 0; i < len; i ++) values[i] = 0.5 + 0.5 * tanhRational(0.5 * values[i]); break;
+				}
+			} break;
+
+			case TANH: {
+				switch (approximation) {
+					case EXACT: for(int i = 0; i < len; i ++) values[i] = Math.tanh(values[i]); break;
+					case TABLE: for(int i = 0; i < len; i ++) values[i] = 2 * sigmoidTable(2 * values[i]) - 1; break;
+					case RATIONAL: for(int i = 0; i < len; i ++) values[i] = tanhRational(values[i]); break;
+				}
+			} break;
+
+			case RELU: for(int i = 0; i < len; i ++) values[i] = Math.max(0, values[i]); break;
+			case LEAKY_RELU: for(int i = 0; i < len; i ++) values[i] = values[i] > 0 ? values[i] : values[i] * LEAKY_SLOPE; break;
+			case HARD_SIGMOID: for(int i = 0; i < len; i ++) values[i] = Math.max(0, Math.min(1, 0.2 * values[i] + 0.5)); break;
+		}
+	}
+
+	private static double sigmoid(double value, Approximation approximation) {
+		switch (approximation) {
+			case TABLE: return sigmoidTable(value);
+			case RATIONAL: return 0.5 + 0.5 * tanhRational(0.5 * value);
+			default: return 1 / (1 + Math.exp(-value));
+		}
+	}
+
+	private static double sigmoidTable(double value) {
+		if(value <= -TABLE_RANGE) {
+			return SIGMOID_TABLE[0];
+		}
+
+		if(value >= TABLE_RANGE) {
+			return SIGMOID_TABLE[TABLE_SIZE];
+		}
+
+		final double x = (value + TABLE_RANGE) * TABLE_SCALE;
+		final int i = (int) x;
+		final double t = x - i;
+
+		return SIGMOID_TABLE[i] + (SIGMOID_TABLE[i + 1] - SIGMOID_TABLE[i]) * t;
+	}
+
+	// Saturates at +-3 where the rational form reaches +-1
+	private static double tanhRational(double value) {
+		if(value <= -3) {
+			return -1;
+		}
+
+		if(value >= 3) {
+			return 1;
+		}
+
+		final double sq = value * value;
+		return value * (27 + sq) / (27 + 9 * sq);
+	}
 }
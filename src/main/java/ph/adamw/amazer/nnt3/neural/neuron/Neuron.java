@@ -32,27 +32,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class Neuron implements Serializable {
-	private final ActivationFunction activationFunction;
+	private static final long serialVersionUID = 1L;
 
 	@Getter
 	protected List<NeuronConnection> connections = new ArrayList<>();
 
+	// Added before activating, stays 0 unless the network's settings are biased
 	@Getter
 	@Setter
-	private double value = 0;
-
-	Neuron(ActivationFunction activationFunction) {
-		this.activationFunction = activationFunction;
-	}
-
-	// Used to feed all proceeding neuron values into this neuron and activate the new value
-	void feedForward() {
-		for (NeuronConnection connection : connections) {
-			setValue(getValue() + connection.getFrom().getValue() * connection.getWeight());
-		}
-
-		setValue(activationFunction.activate(getValue()));
-	}
+	private double bias = 0;
 
 	void addConnection(NeuronConnection connection) {
 		connections.add(connection);
@@ -31,6 +31,8 @@ import java.io.Serializable;
 
 @Getter
 public class NeuronConnection implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	@Setter
 	private double weight;
 
@@ -24,27 +24,21 @@
 
 package ph.adamw.amazer.nnt3.neural.neuron;
 
+import lombok.Getter;
+
 import java.util.ArrayList;
-import java.util.List;
 
+@Getter
 public class NeuronLayer extends ArrayList<Neuron> {
-	public NeuronLayer(int size, ActivationFunction activationFunction) {
-		for (int i = 0; i < size; i++) {
-			add(new Neuron(activationFunction));
-		}
-	}
+	private final ActivationFunction activationFunction;
+	private final ActivationFunction.Approximation approximation;
 
-	public double[] getValues() {
-		double[] values = new double[size()];
-		for (int i = 0; i < size(); i ++) {
-			values[i] = get(i).getValue();
-		}
-		return values;
-	}
+	public NeuronLayer(int size, ActivationFunction activationFunction, ActivationFunction.Approximation approximation) {
+		this.activationFunction = activationFunction;
+		this.approximation = approximation;
 
-	public void setValues(double[] inputs) {
-		for (int i = 0; i < size(); i++) {
-			get(i).setValue(inputs[i]);
+		for (int i = 0; i < size; i++) {
+			add(new Neuron());
 		}
 	}
 
@@ -58,10 +52,4 @@ public class NeuronLayer extends ArrayList<Neuron> {
 			}
 		}
 	}
-
-	public void feedForward() {
-		for (Neuron i : this) {
-			i.feedForward();
-		}
-	}
 }
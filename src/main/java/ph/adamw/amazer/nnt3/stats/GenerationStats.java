@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+
+@AllArgsConstructor
+@Getter
+public class GenerationStats implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	static final String CSV_HEADER = "generation,size,min,mean,p25,p50,p75,p90,max,goalRate,meanCycles,durationMillis";
+
+	private final int generation;
+	private final int size;
+
+	private final double min;
+	private final double mean;
+	private final double p25;
+	private final double p50;
+	private final double p75;
+	private final double p90;
+	private final double max;
+
+	private final double goalRate;
+	private final double meanCycles;
+
+	private final long durationMillis;
+
+	String toCsv() {
+		return generation + "," + size + "," + min + "," + mean + "," + p25 + "," + p50 + "," + p75 + "," + p90 + "," + max
+				+ "," + goalRate + "," + meanCycles + "," + durationMillis;
+	}
+}
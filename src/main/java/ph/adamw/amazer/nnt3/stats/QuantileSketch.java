@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Lock-free streaming quantile sketch, values are counted into logarithmic buckets so any quantile is within
+ * RELATIVE_ACCURACY of the true value no matter how many values are added. Negative values are mirrored into their own
+ * buckets and anything smaller in magnitude than MIN_MAGNITUDE counts as zero.
+ */
+public class QuantileSketch {
+	private static final double RELATIVE_ACCURACY = 0.01;
+	private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+	private static final double LOG_GAMMA = Math.log(GAMMA);
+
+	private static final double MIN_MAGNITUDE = 1e-9;
+	private static final double MAX_MAGNITUDE = 1e15;
+
+	private static final int MIN_INDEX = index(MIN_MAGNITUDE);
+	private static final int BUCKETS = index(MAX_MAGNITUDE) - MIN_INDEX + 1;
+
+	private final AtomicLongArray positive = new AtomicLongArray(BUCKETS);
+	private final AtomicLongArray negative = new AtomicLongArray(BUCKETS);
+	private final LongAdder zero = new LongAdder();
+	private final LongAdder count = new LongAdder();
+
+	private static int index(double magnitude) {
+		return (int) Math.ceil(Math.log(magnitude) / LOG_GAMMA);
+	}
+
+	private static int bucket(double magnitude) {
+		return Math.max(0, Math.min(BUCKETS - 1, index(magnitude) - MIN_INDEX));
+	}
+
+	// The midpoint of a bucket in log space, which is what gives the relative accuracy guarantee
+	private static double value(int bucket) {
+		return 2 * Math.pow(GAMMA, bucket + MIN_INDEX) / (GAMMA + 1);
+	}
+
+	public void add(double v) {
+		if(Double.isNaN(v)) {
+			return;
+		}
+
+		if(Math.abs(v) < MIN_MAGNITUDE) {
+			zero.increment();
+		} else if(v > 0) {
+			positive.incrementAndGet(bucket(v));
+		} else {
+			negative.incrementAndGet(bucket(-v));
+		}
+
+		count.increment();
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @param q The quantile to estimate, between 0 and 1
+	 * @return An estimate of the value at q, or NaN if nothing has been added
+	 */
+	public double quantile(double q) {
+		final long total = count.sum();
+
+		if(total == 0) {
+			return Double.NaN;
+		}
+
+		final long rank = (long) Math.floor(Math.max(0, Math.min(1, q)) * (total - 1));
+		long seen = 0;
+
+		// Ascending order is the most negative values first, then zero, then positives
+		for(int i = BUCKETS - 1; i >= 0; i --) {
+			seen += negative.get(i);
+			if(seen > rank) {
+				return -value(i);
+			}
+		}
+
+		seen += zero.sum();
+		if(seen > rank) {
+			return 0;
+		}
+
+		for(int i = 0; i < BUCKETS; i ++) {
+			seen += positive.get(i);
+			if(seen > rank) {
+				return value(i);
+			}
+		}
+
+		// Only reachable if values were added while we were reading, the largest bucket is as good an answer as any
+		return value(BUCKETS - 1);
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ph.adamw.amazer.nnt3.stats;
+
+import lombok.Getter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/*
+ * Appends GenerationStats to a CSV file from its own thread so the evolution never waits on disk. Rows are written in
+ * batches of whatever has queued up since the last write and flushed once per batch. If writing ever fails the thread
+ * stops, the failure is kept and anything written from then on is dropped rather than queued forever.
+ */
+public class StatisticsWriter implements AutoCloseable {
+	private static final int MAX_BATCH = 256;
+
+	// Queued by close() to tell the writer thread to finish up
+	private static final GenerationStats END = new GenerationStats(-1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+	@Getter
+	private final File file;
+
+	private final BlockingQueue<GenerationStats> queue = new LinkedBlockingQueue<>();
+	private final BufferedWriter writer;
+	private final Thread thread;
+
+	// Set once by the writer thread as it dies, null while it's still writing
+	@Getter
+	private volatile IOException failure;
+
+	public StatisticsWriter(File file) throws IOException {
+		this.file = file;
+
+		final boolean isNew = !file.exists() || file.length() == 0;
+		writer = new BufferedWriter(new FileWriter(file, true));
+
+		if(isNew) {
+			writer.write(GenerationStats.CSV_HEADER);
+			writer.newLine();
+			writer.flush();
+		}
+
+		thread = new Thread(this::drain, "NNt3 Statistics Writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	// False if the row was dropped because the writer has failed
+	public boolean write(GenerationStats stats) {
+		if(failure != null) {
+			return false;
+		}
+
+		queue.add(stats);
+		return true;
+	}
+
+	private void drain() {
+		final List<GenerationStats> batch = new ArrayList<>();
+
+		try {
+			while(true) {
+				batch.add(queue.take());
+				queue.drainTo(batch, MAX_BATCH - 1);
+
+				for(GenerationStats i : batch) {
+					if(i == END) {
+						writer.close();
+						return;
+					}
+
+					writer.write(i.toCsv());
+					writer.newLine();
+				}
+
+				writer.flush();
+				batch.clear();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			failure = e;
+			queue.clear();
+
+			try {
+				writer.close();
+			} catch (IOException ignored) {
+				// Already failed, the first error is the one worth keeping
+			}
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// Blocks until everything queued before this call has been written
+	@Override
+	public void close() {
+		queue.add(END);
+
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+	}
+}
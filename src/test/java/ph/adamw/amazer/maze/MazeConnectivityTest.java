@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ph.adamw.amazer.maze;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class MazeConnectivityTest {
+	private static final int COLS = 12;
+	private static final int ROWS = 9;
+
+	// Plain flood fill from the start over the same grid
+	private static boolean reachable(CellState[][] grid, int startCol, int startRow) {
+		final boolean[][] seen = new boolean[COLS][ROWS];
+		final ArrayDeque<int[]> queue = new ArrayDeque<>();
+
+		seen[startCol][startRow] = true;
+		queue.add(new int[] {startCol, startRow});
+
+		while(!queue.isEmpty()) {
+			final int[] cell = queue.poll();
+
+			if(grid[cell[0]][cell[1]] == CellState.GOAL) {
+				return true;
+			}
+
+			for(int[] d : new int[][] {{1, 0}, {-1, 0}, {0, 1}, {0, -1}}) {
+				final int col = cell[0] + d[0];
+				final int row = cell[1] + d[1];
+
+				if(col >= 0 && col < COLS && row >= 0 && row < ROWS && !seen[col][row] && grid[col][row] != CellState.WALL) {
+					seen[col][row] = true;
+					queue.add(new int[] {col, row});
+				}
+			}
+		}
+
+		return false;
+	}
+
+	@Test
+	void tracksReachabilityThroughRandomEdits() {
+		final Random random = new Random(5);
+
+		for(int trial = 0; trial < 20; trial ++) {
+			final MazeConnectivity connectivity = new MazeConnectivity(COLS, ROWS);
+			final CellState[][] grid = new CellState[COLS][ROWS];
+
+			for(int col = 0; col < COLS; col ++) {
+				for(int row = 0; row < ROWS; row ++) {
+					grid[col][row] = CellState.EMPTY;
+				}
+			}
+
+			assertFalse(connectivity.isSolvable());
+
+			grid[0][0] = CellState.START;
+			connectivity.update(0, 0, CellState.START);
+			grid[COLS - 1][ROWS - 1] = CellState.GOAL;
+			connectivity.update(COLS - 1, ROWS - 1, CellState.GOAL);
+
+			for(int edit = 0; edit < 400; edit ++) {
+				final int col = random.nextInt(COLS);
+				final int row = random.nextInt(ROWS);
+
+				if(grid[col][row] == CellState.START || grid[col][row] == CellState.GOAL) {
+					continue;
+				}
+
+				// Walls more often than not so the grid actually gets split up
+				final CellState state = random.nextInt(5) < 3 ? CellState.WALL : CellState.EMPTY;
+				grid[col][row] = state;
+				connectivity.update(col, row, state);
+
+				assertEquals(reachable(grid, 0, 0), connectivity.isSolvable(), "after edit " + edit + " of trial " + trial);
+			}
+		}
+	}
+}
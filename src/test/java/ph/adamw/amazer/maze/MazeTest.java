@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ph.adamw.amazer.maze;
+
+import org.junit.jupiter.api.Test;
+import ph.adamw.amazer.agent.entity.EntityDirection;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MazeTest {
+	private static final int WIDTH = 17;
+	private static final int HEIGHT = 13;
+
+	private static Maze randomMaze(Random random) {
+		final Cell[][] cells = new Cell[WIDTH][HEIGHT];
+
+		for(int col = 0; col < WIDTH; col ++) {
+			for(int row = 0; row < HEIGHT; row ++) {
+				cells[col][row] = new Cell(col, row, random.nextInt(3) == 0 ? CellState.WALL : CellState.EMPTY);
+			}
+		}
+
+		cells[0][0].setState(CellState.START);
+		cells[WIDTH - 1][HEIGHT - 1].setState(CellState.GOAL);
+		return new Maze(WIDTH, HEIGHT, cells, cells[0][0], cells[WIDTH - 1][HEIGHT - 1]);
+	}
+
+	// A maze built from scratch over the same cells, whose tables come from the full build
+	private static Maze rebuilt(Maze maze) {
+		return new Maze(WIDTH, HEIGHT, maze.getCells(), maze.getStart(), maze.getGoal());
+	}
+
+	private static void assertSameTables(Maze expected, Maze actual, int edit) {
+		for(int col = 0; col < WIDTH; col ++) {
+			for(int row = 0; row < HEIGHT; row ++) {
+				assertEquals(expected.getOptimalDistanceToGoal(col, row), actual.getOptimalDistanceToGoal(col, row),
+						"distance at " + col + "," + row + " after edit " + edit);
+
+				for(EntityDirection dir : EntityDirection.VALUES) {
+					assertEquals(expected.getDistanceToNextObstacle(col, row, dir), actual.getDistanceToNextObstacle(col, row, dir),
+							"sensor " + dir + " at " + col + "," + row + " after edit " + edit);
+				}
+			}
+		}
+	}
+
+	@Test
+	void editsMatchAFullBuild() {
+		final Random random = new Random(11);
+
+		for(int trial = 0; trial < 20; trial ++) {
+			final Maze maze = randomMaze(random);
+
+			for(int edit = 0; edit < 200; edit ++) {
+				final int col = random.nextInt(WIDTH);
+				final int row = random.nextInt(HEIGHT);
+				final Cell cell = maze.getCells()[col][row];
+
+				if(cell == maze.getStart() || cell == maze.getGoal()) {
+					continue;
+				}
+
+				maze.setWall(col, row, random.nextBoolean());
+				assertSameTables(rebuilt(maze), maze, edit);
+			}
+		}
+	}
+
+	@Test
+	void cantBeEditedWhileRunning() {
+		final Maze maze = randomMaze(new Random(3));
+
+		maze.beginRun();
+		assertThrows(IllegalStateException.class, () -> maze.setWall(1, 1, true));
+
+		maze.endRun();
+		maze.setWall(1, 1, true);
+		assertEquals(CellState.WALL, maze.getCells()[1][1].getState());
+	}
+}
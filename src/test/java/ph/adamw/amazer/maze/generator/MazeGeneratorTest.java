@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ph.adamw.amazer.maze.generator;
+
+import org.junit.jupiter.api.Test;
+import ph.adamw.amazer.maze.Cell;
+import ph.adamw.amazer.maze.Maze;
+import ph.adamw.amazer.maze.MazeConnectivity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MazeGeneratorTest {
+	// Odd and even sizes, the smallest allowed and a few that aren't square
+	private static final int[][] SIZES = {{3, 5}, {5, 3}, {3, 4}, {4, 3}, {5, 5}, {6, 6}, {7, 12}, {21, 9}, {40, 40}};
+
+	private static void assertSolvable(Maze maze, String name) {
+		final MazeConnectivity connectivity = new MazeConnectivity(maze.getWidth(), maze.getHeight());
+
+		for(Cell[] column : maze.getCells()) {
+			for(Cell cell : column) {
+				connectivity.update(cell.getCol(), cell.getRow(), cell.getState());
+			}
+		}
+
+		assertNotSame(maze.getStart(), maze.getGoal(), name + " put the start on the goal");
+		assertTrue(connectivity.isSolvable(), name + " can't be solved");
+	}
+
+	@Test
+	void everyLayoutIsSolvable() {
+		for(MazeGenerator.Layout layout : MazeGenerator.Layout.values()) {
+			for(int[] size : SIZES) {
+				// Perfect mazes need two rooms, so a 4 wide side only works for the warehouse
+				if(layout != MazeGenerator.Layout.WAREHOUSE && size[0] < 5 && size[1] < 5) {
+					continue;
+				}
+
+				for(long seed = 0; seed < 20; seed ++) {
+					final PackedMaze packed = MazeGenerator.generate(layout, size[0], size[1], seed);
+					assertSolvable(packed.toMaze(), layout + " " + size[0] + "x" + size[1] + " seed " + seed);
+				}
+			}
+		}
+	}
+
+	@Test
+	void sameSeedGivesSameMaze() {
+		for(MazeGenerator.Layout layout : MazeGenerator.Layout.values()) {
+			final PackedMaze a = MazeGenerator.generate(layout, 31, 17, 7);
+			final PackedMaze b = MazeGenerator.generate(layout, 31, 17, 7);
+
+			for(int col = 0; col < 31; col ++) {
+				for(int row = 0; row < 17; row ++) {
+					assertEquals(a.isWall(col, row), b.isWall(col, row), layout + " differs at " + col + "," + row);
+				}
+			}
+		}
+	}
+
+	@Test
+	void refusesMazesWithOneOpenCell() {
+		for(MazeGenerator.Layout layout : MazeGenerator.Layout.values()) {
+			assertThrows(IllegalArgumentException.class, () -> MazeGenerator.generate(layout, 3, 3, 0));
+		}
+
+		assertThrows(IllegalArgumentException.class, () -> MazeGenerator.generate(MazeGenerator.Layout.PRIM, 4, 4, 0));
+		assertThrows(IllegalArgumentException.class, () -> MazeGenerator.generate(MazeGenerator.Layout.BACKTRACKER, 4, 3, 0));
+	}
+}
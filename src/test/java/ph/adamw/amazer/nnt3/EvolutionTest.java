@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ph.adamw.amazer.nnt3;
+
+import org.junit.jupiter.api.Test;
+import ph.adamw.amazer.nnt3.GenerationTest.FixedAgent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EvolutionTest {
+	@Test
+	void reservationIsTakenOverByTheNextRun() {
+		final FixedEvolution evolution = new FixedEvolution();
+
+		assertTrue(evolution.reserveRun());
+		assertTrue(evolution.isRunning());
+		assertFalse(evolution.reserveRun());
+
+		evolution.run(1, false);
+
+		assertFalse(evolution.isRunning());
+		assertEquals(1, evolution.getGenerationCount());
+	}
+
+	@Test
+	void releasedReservationCanBeTakenAgain() {
+		final FixedEvolution evolution = new FixedEvolution();
+
+		assertTrue(evolution.reserveRun());
+		evolution.releaseRun();
+
+		assertFalse(evolution.isRunning());
+		assertTrue(evolution.reserveRun());
+	}
+
+	@Test
+	void failedRunIsNoLongerRunning() {
+		final FixedEvolution evolution = new FixedEvolution();
+		evolution.reserveRun();
+
+		assertThrows(IllegalStateException.class, () -> evolution.run(1, gen -> {
+			throw new IllegalStateException("Broken on purpose");
+		}));
+
+		assertFalse(evolution.isRunning());
+	}
+
+	static class FixedEvolution extends Evolution<FixedAgent> {
+		@Override
+		protected Generation<FixedAgent> populate(Generation<FixedAgent> generation) {
+			for(int i = 0; i < 4; i ++) {
+				generation.add(new FixedAgent(i));
+			}
+
+			return generation;
+		}
+	}
+}
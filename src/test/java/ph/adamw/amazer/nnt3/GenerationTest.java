@@ -0,0 +1,142 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ph.adamw.amazer.nnt3;
+
+import org.junit.jupiter.api.Test;
+import ph.adamw.amazer.nnt3.concurrent.FairWorkerPool;
+import ph.adamw.amazer.nnt3.neural.Agent;
+import ph.adamw.amazer.nnt3.neural.NeuralNetSettings;
+import ph.adamw.amazer.nnt3.neural.neuron.ActivationFunction;
+import ph.adamw.amazer.nnt3.stats.GenerationStats;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GenerationTest {
+	private static final NeuralNetSettings SETTINGS = new NeuralNetSettings(2, 1, 3, 2, 10, ActivationFunction.SIGMOID);
+
+	@Test
+	void failingAgentDoesNotBlockItsGeneration() {
+		final Generation<FixedAgent> generation = new Generation<>();
+		final FixedAgent broken = new FixedAgent(Double.NaN);
+
+		generation.add(new FixedAgent(3));
+		generation.add(broken);
+		generation.add(new FixedAgent(1));
+
+		try (FairWorkerPool pool = new FairWorkerPool(2, "Test Worker")) {
+			generation.run(pool.newClient());
+
+			final List<FixedAgent> sorted = assertTimeoutPreemptively(Duration.ofSeconds(10), generation::waitForSortedAgents);
+
+			assertTrue(broken.isFailed());
+			assertSame(broken, sorted.get(sorted.size() - 1));
+			assertEquals(2, generation.getCompletedCount());
+			assertEquals(1, generation.getBestFitness());
+			assertEquals(2, generation.getMeanFitness());
+		}
+	}
+
+	@Test
+	void statsIncludeEveryAgentOnceWaitReturns() {
+		for(int attempt = 0; attempt < 50; attempt ++) {
+			final Generation<FixedAgent> generation = new Generation<>();
+
+			for(int i = 0; i < 8; i ++) {
+				generation.add(new FixedAgent(i));
+			}
+
+			generation.run(true);
+			generation.waitForSortedAgents();
+
+			assertEquals(8, generation.getCompletedCount());
+			assertEquals(0, generation.getBestFitness());
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void statsSurviveSavingAndLoading() throws IOException, ClassNotFoundException {
+		final Generation<FixedAgent> generation = new Generation<>();
+
+		generation.add(new FixedAgent(4));
+		generation.add(new FixedAgent(Double.NaN));
+		generation.add(new FixedAgent(2));
+
+		generation.run(false);
+		generation.waitForSortedAgents();
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(generation);
+		}
+
+		final Generation<FixedAgent> loaded;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			loaded = (Generation<FixedAgent>) in.readObject();
+		}
+
+		assertEquals(generation.getCompletedCount(), loaded.getCompletedCount());
+		assertEquals(generation.getBestFitness(), loaded.getBestFitness());
+		assertEquals(generation.getMeanFitness(), loaded.getMeanFitness());
+		final GenerationStats before = generation.getStats(3, 0);
+		final GenerationStats after = loaded.getStats(3, 0);
+		assertEquals(before.getP50(), after.getP50());
+		assertEquals(before.getMax(), after.getMax());
+		assertEquals(before.getMeanCycles(), after.getMeanCycles());
+	}
+
+	// Scores the given fitness, or throws when it's NaN
+	static class FixedAgent extends Agent {
+		private final double score;
+
+		FixedAgent(double score) {
+			super(SETTINGS, null, "Agent " + score);
+			this.score = score;
+		}
+
+		@Override
+		protected double evaluateFitness() {
+			if(Double.isNaN(score)) {
+				throw new IllegalStateException("Broken on purpose");
+			}
+
+			assertFalse(isDone());
+			return score;
+		}
+	}
+}
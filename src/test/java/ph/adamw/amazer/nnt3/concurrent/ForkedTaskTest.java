@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ph.adamw.amazer.nnt3.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class ForkedTaskTest {
+	// Every worker is busy joining its own forks, so they can only finish by running them themselves
+	@Test
+	void forksFromEveryWorkerDontDeadlockThePool() {
+		try (FairWorkerPool pool = new FairWorkerPool(2, "Test Worker")) {
+			final FairWorkerPool.Client client = pool.newClient();
+			final List<CompletableFuture<Integer>> parents = new ArrayList<>();
+
+			for(int p = 0; p < 4; p ++) {
+				final CompletableFuture<Integer> parent = new CompletableFuture<>();
+				parents.add(parent);
+
+				client.execute(() -> {
+					final List<ForkedTask<Integer>> forks = new ArrayList<>();
+					for(int i = 1; i <= 10; i ++) {
+						final int value = i;
+						forks.add(ForkedTask.fork(() -> value, client));
+					}
+
+					int sum = 0;
+					for(ForkedTask<Integer> fork : forks) {
+						sum += fork.join();
+					}
+
+					parent.complete(sum);
+				});
+			}
+
+			assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+				for(CompletableFuture<Integer> parent : parents) {
+					assertEquals(55, parent.join());
+				}
+			});
+		}
+	}
+
+	@Test
+	void joinRunsWorkAClosedExecutorDropped() {
+		final FairWorkerPool pool = new FairWorkerPool(1, "Test Worker");
+		pool.close();
+
+		assertEquals(7, ForkedTask.fork(() -> 7, pool.newClient()).join());
+	}
+
+	@Test
+	void joinRethrows() {
+		final ForkedTask<Integer> task = ForkedTask.fork(() -> {
+			throw new IllegalArgumentException("Broken on purpose");
+		}, Runnable::run);
+
+		assertThrows(IllegalArgumentException.class, task::join);
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ph.adamw.amazer.nnt3.neural;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class GenomeCacheTest {
+	@Test
+	void evictsTheLeastRecentlyUsed() {
+		final GenomeCache cache = new GenomeCache(2);
+		final SeedGenome a = new SeedGenome(null, 1, 0.1);
+		final SeedGenome b = new SeedGenome(null, 2, 0.1);
+		final SeedGenome c = new SeedGenome(null, 3, 0.1);
+		final double[] weights = new double[4];
+
+		cache.put(a, weights);
+		cache.put(b, new double[4]);
+		cache.get(a);
+		cache.put(c, new double[4]);
+
+		assertSame(weights, cache.get(a));
+		assertNull(cache.get(b));
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	void doesNotKeepGenomesAlive() throws InterruptedException {
+		final GenomeCache cache = new GenomeCache(8);
+		final SeedGenome kept = new SeedGenome(null, 1, 0.1);
+		cache.put(kept, new double[4]);
+
+		for(int i = 0; i < 4; i ++) {
+			cache.put(new SeedGenome(new SeedGenome(null, i, 0.1), i, 0.1), new double[4]);
+		}
+
+		for(int i = 0; i < 50 && cache.size() > 1; i ++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+
+		assertEquals(1, cache.size());
+		assertEquals(4, cache.get(kept).length);
+	}
+}
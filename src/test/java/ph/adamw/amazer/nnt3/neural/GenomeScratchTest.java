@@ -0,0 +1,48 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ph.adamw.amazer.nnt3.neural;
+
+import org.junit.jupiter.api.Test;
+import ph.adamw.amazer.nnt3.neural.neuron.ActivationFunction;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class GenomeScratchTest {
+	// What a shared pool worker sees with two evolutions loaded, their agents alternate
+	@Test
+	void keepsAScratchPerSettings() {
+		final NeuralNetSettings a = new NeuralNetSettings(4, 1, 6, 2, 15, ActivationFunction.SIGMOID);
+		final NeuralNetSettings b = new NeuralNetSettings(4, 1, 6, 2, 15, ActivationFunction.SIGMOID);
+
+		final GenomeScratch first = GenomeScratch.get(a);
+		final GenomeScratch other = GenomeScratch.get(b);
+
+		assertNotSame(first, other);
+		assertSame(first, GenomeScratch.get(a));
+		assertSame(other, GenomeScratch.get(b));
+	}
+}
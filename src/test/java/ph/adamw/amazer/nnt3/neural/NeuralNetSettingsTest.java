@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ph.adamw.amazer.nnt3.neural;
+
+import org.junit.jupiter.api.Test;
+import ph.adamw.amazer.nnt3.neural.genetics.GeneticOperators;
+import ph.adamw.amazer.nnt3.neural.neuron.ActivationFunction;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NeuralNetSettingsTest {
+	@Test
+	void builderDefaultsMatchThePlainConstructor() {
+		final NeuralNetSettings plain = new NeuralNetSettings(3, 2, 5, 4, 15, ActivationFunction.TANH);
+		final NeuralNetSettings built = NeuralNetSettings.builder()
+				.inputs(3)
+				.hiddenLayerSizes(new int[] {5, 5})
+				.activationFunctions(new ActivationFunction[] {ActivationFunction.TANH, ActivationFunction.TANH, ActivationFunction.TANH})
+				.outputs(4)
+				.mutationRate(15)
+				.build();
+
+		assertEquals(plain.toString(), built.toString());
+		assertEquals(GeneticOperators.Mutation.UNIFORM, built.getMutation());
+		assertEquals(NeuralNetSettings.Storage.OBJECTS, built.getStorage());
+		assertArrayEquals(new boolean[2], built.getRecurrentLayers());
+		assertFalse(built.isRecurrent(0));
+	}
+
+	@Test
+	void builderStillValidates() {
+		assertThrows(IllegalArgumentException.class, () -> NeuralNetSettings.builder()
+				.inputs(3)
+				.hiddenLayerSizes(new int[] {5})
+				.activationFunctions(new ActivationFunction[] {ActivationFunction.TANH})
+				.outputs(4)
+				.build());
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ph.adamw.amazer.nnt3.neural;
+
+import org.junit.jupiter.api.Test;
+import ph.adamw.amazer.nnt3.neural.genetics.GeneticOperators;
+import ph.adamw.amazer.nnt3.neural.neuron.ActivationFunction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeedGenomeTest {
+	private static final NeuralNetSettings SETTINGS = NeuralNetSettings.builder()
+			.inputs(5)
+			.hiddenLayerSizes(new int[] {6})
+			.activationFunctions(new ActivationFunction[] {ActivationFunction.TANH, ActivationFunction.SIGMOID})
+			.outputs(4)
+			.biased(true)
+			.mutationRate(0.1)
+			.mutation(GeneticOperators.Mutation.GAUSSIAN)
+			.storage(NeuralNetSettings.Storage.SEEDED)
+			.build();
+
+	private static final GenomeLayout LAYOUT = new GenomeLayout(SETTINGS);
+
+	// Far deeper than default serialization could manage, which recursed once per link
+	@Test
+	void longChainSurvivesSaving() throws IOException, ClassNotFoundException {
+		SeedGenome genome = null;
+		for(int i = 0; i < 20000; i ++) {
+			genome = new SeedGenome(genome, i, 0.1);
+		}
+
+		final SeedGenome loaded = roundTrip(genome);
+		assertEquals(genome.getDepth(), loaded.getDepth());
+
+		final double[] expected = new double[LAYOUT.length()];
+		final double[] actual = new double[LAYOUT.length()];
+		genome.materialise(LAYOUT, SETTINGS, expected);
+		loaded.materialise(LAYOUT, SETTINGS, actual);
+		assertArrayEquals(expected, actual);
+	}
+
+	@Test
+	void checkpointsKeepTheSameWeights() throws IOException, ClassNotFoundException {
+		final int generations = SeedGenome.CHECKPOINT_DEPTH * 3 + 5;
+
+		SeedGenome genome = null;
+		for(int i = 0; i < generations; i ++) {
+			genome = SeedGenome.child(genome, i, 0.1, LAYOUT, SETTINGS);
+			assertTrue(genome.getDepth() <= SeedGenome.CHECKPOINT_DEPTH);
+		}
+
+		// The same chain replayed by hand from the random root
+		final double[] expected = new double[LAYOUT.length()];
+		LAYOUT.randomise(SETTINGS.isBiased(), new SplittableRandom(0), expected);
+		for(int i = 1; i < generations; i ++) {
+			LAYOUT.mutate(SETTINGS, 0.1, new SplittableRandom(i), expected);
+		}
+
+		final double[] actual = new double[LAYOUT.length()];
+		genome.materialise(LAYOUT, SETTINGS, actual);
+		assertArrayEquals(expected, actual);
+
+		roundTrip(genome).materialise(LAYOUT, SETTINGS, actual);
+		assertArrayEquals(expected, actual);
+	}
+
+	@Test
+	void siblingsShareOneCheckpoint() {
+		SeedGenome parent = null;
+		for(int i = 0; i <= SeedGenome.CHECKPOINT_DEPTH; i ++) {
+			parent = SeedGenome.child(parent, i, 0.1, LAYOUT, SETTINGS);
+		}
+
+		final SeedGenome a = SeedGenome.child(parent, 1, 0.1, LAYOUT, SETTINGS);
+		final SeedGenome b = SeedGenome.child(parent, 2, 0.1, LAYOUT, SETTINGS);
+
+		assertEquals(1, a.getDepth());
+		assertSame(a.getParent(), b.getParent());
+	}
+
+	private static SeedGenome roundTrip(SeedGenome genome) throws IOException, ClassNotFoundException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(genome);
+		}
+
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (SeedGenome) in.readObject();
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ph.adamw.amazer.nnt3.neural.codegen;
+
+import org.junit.jupiter.api.Test;
+import ph.adamw.amazer.nnt3.neural.NeuralNetSettings;
+import ph.adamw.amazer.nnt3.neural.kernel.DenseKernels;
+import ph.adamw.amazer.nnt3.neural.neuron.ActivationFunction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class EvaluatorCompilerTest {
+	@Test
+	void compilesNarrowTopologies() {
+		final NeuralNetSettings settings = new NeuralNetSettings(4, 2, 8, 2, 15, ActivationFunction.SIGMOID);
+		assertNotNull(EvaluatorCompiler.get(settings));
+	}
+
+	// Only when there's a vector kernel to leave them to, builds without it still compile them
+	@Test
+	void leavesWideTopologiesToTheVectorKernel() {
+		final NeuralNetSettings settings = new NeuralNetSettings(4, 2, EvaluatorCompiler.KERNEL_FAN_IN, 2, 15, ActivationFunction.SIGMOID);
+		assertEquals(DenseKernels.isVectorised(), EvaluatorCompiler.get(settings) == null);
+	}
+
+	@Test
+	void compilesEachTopologyOnceWhenAskedConcurrently() throws Exception {
+		// A topology no other test uses so it's compiled here
+		final NeuralNetSettings settings = new NeuralNetSettings(3, 3, 5, 3, 15, ActivationFunction.TANH);
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		final CountDownLatch ready = new CountDownLatch(1);
+		final List<Future<NetworkEvaluator>> results = new ArrayList<>();
+
+		try {
+			for(int i = 0; i < 8; i ++) {
+				results.add(executor.submit(() -> {
+					ready.await();
+					return EvaluatorCompiler.get(settings);
+				}));
+			}
+
+			ready.countDown();
+
+			final NetworkEvaluator first = results.get(0).get();
+			assertNotNull(first);
+
+			for(Future<NetworkEvaluator> result : results) {
+				assertSame(first, result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
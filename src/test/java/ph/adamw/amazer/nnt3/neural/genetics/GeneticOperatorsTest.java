@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ph.adamw.amazer.nnt3.neural.genetics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeneticOperatorsTest {
+	private static final int N = 200000;
+
+	@Test
+	void nextGaussianIsStandardNormal() {
+		final SplittableRandom random = new SplittableRandom(1);
+		double sum = 0;
+		double squares = 0;
+		int withinOne = 0;
+
+		for(int i = 0; i < N; i ++) {
+			final double x = GeneticOperators.nextGaussian(random);
+			sum += x;
+			squares += x * x;
+
+			if(Math.abs(x) < 1) {
+				withinOne ++;
+			}
+		}
+
+		assertEquals(0, sum / N, 0.01);
+		assertEquals(1, squares / N, 0.01);
+		assertEquals(0.6827, (double) withinOne / N, 0.005);
+	}
+
+	// The GUI's default rate of 15 has to be small next to weights in [-1, 1], not random search
+	@Test
+	void gaussianRateIsAPercentage() {
+		final double[] weights = new double[N];
+		GeneticOperators.mutate(GeneticOperators.Mutation.GAUSSIAN, 15, weights, 0, N, new SplittableRandom(2));
+
+		assertEquals(0.15, standardDeviation(weights), 0.005);
+	}
+
+	@Test
+	void sparseTouchesItsShareAtTheSameScale() {
+		final double[] weights = new double[N];
+		GeneticOperators.mutate(GeneticOperators.Mutation.SPARSE, 15, weights, 0, N, new SplittableRandom(3));
+
+		int touched = 0;
+		double squares = 0;
+		for(double weight : weights) {
+			if(weight != 0) {
+				touched ++;
+				squares += weight * weight;
+			}
+		}
+
+		assertEquals(GeneticOperators.SPARSE_PROBABILITY, (double) touched / N, 0.003);
+		assertEquals(0.15, Math.sqrt(squares / touched), 0.01);
+	}
+
+	@Test
+	void mutationStaysInsideItsRange() {
+		final double[] weights = new double[100];
+		GeneticOperators.mutate(GeneticOperators.Mutation.GAUSSIAN, 15, weights, 10, 50, new SplittableRandom(4));
+
+		for(int i = 0; i < weights.length; i ++) {
+			assertEquals(i >= 10 && i < 60, weights[i] != 0, "weight " + i);
+		}
+	}
+
+	@Test
+	void crossoversOnlyTakeFromTheParents() {
+		final double[] first = new double[1000];
+		final double[] second = new double[1000];
+		Arrays.fill(first, 1);
+		Arrays.fill(second, 2);
+
+		final double[] uniform = new double[1000];
+		GeneticOperators.crossover(GeneticOperators.Crossover.UNIFORM, first, second, uniform, 0, 1000, new SplittableRandom(5));
+
+		int fromFirst = 0;
+		for(double weight : uniform) {
+			assertTrue(weight == 1 || weight == 2);
+			fromFirst += weight == 1 ? 1 : 0;
+		}
+
+		assertEquals(500, fromFirst, 60);
+
+		// Crossing into the first parent itself, as Agent.breed does
+		GeneticOperators.crossover(GeneticOperators.Crossover.SINGLE_POINT, first, second, first, 0, 1000, new SplittableRandom(6));
+
+		int cut = 0;
+		while(cut < 1000 && first[cut] == 1) {
+			cut ++;
+		}
+
+		for(int i = cut; i < 1000; i ++) {
+			assertEquals(2, first[i]);
+		}
+	}
+
+	private static double standardDeviation(double[] values) {
+		double sum = 0;
+		double squares = 0;
+
+		for(double value : values) {
+			sum += value;
+			squares += value * value;
+		}
+
+		final double mean = sum / values.length;
+		return Math.sqrt(squares / values.length - mean * mean);
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ph.adamw.amazer.nnt3.neural.kernel;
+
+import org.junit.jupiter.api.Test;
+import ph.adamw.amazer.nnt3.neural.neuron.ActivationFunction;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class DenseKernelsTest {
+	// On JDK 17+ surefire starts the tests with the incubator module, the same as javafx:run, and sets the property
+	@Test
+	void picksVectorKernelWhenModuleIsPresent() {
+		assumeTrue(Boolean.getBoolean("nnt3.expectVectorKernel"));
+		assertEquals("VectorKernel", DenseKernels.get().getClass().getSimpleName());
+	}
+
+	@Test
+	void vectorKernelMatchesScalar() {
+		final DenseKernel vector = DenseKernels.get();
+		final DenseKernel scalar = new ScalarKernel();
+		final Random random = new Random(7);
+
+		// Odd sizes so the tail loops run as well as the vector ones
+		final int inputs = 37;
+		final int outputs = 13;
+
+		final double[] weights = new double[inputs * outputs];
+		final float[] floats = new float[weights.length];
+		final double[] from = new double[inputs];
+
+		for(int i = 0; i < weights.length; i ++) {
+			weights[i] = random.nextDouble() * 2 - 1;
+			floats[i] = (float) weights[i];
+		}
+
+		for(int i = 0; i < inputs; i ++) {
+			from[i] = random.nextDouble() * 2 - 1;
+		}
+
+		final double[] a = new double[outputs];
+		final double[] b = new double[outputs];
+		vector.multiplyAccumulate(weights, from, a, inputs, outputs);
+		scalar.multiplyAccumulate(weights, from, b, inputs, outputs);
+		assertArrayEquals(b, a, 1e-12);
+
+		final double[] c = new double[outputs];
+		final double[] d = new double[outputs];
+		vector.multiplyAccumulate(floats, from, c, inputs, outputs);
+		scalar.multiplyAccumulate(floats, from, d, inputs, outputs);
+		assertArrayEquals(d, c, 1e-12);
+
+		for(ActivationFunction function : ActivationFunction.values()) {
+			final double[] x = a.clone();
+			final double[] y = a.clone();
+			vector.activate(function, ActivationFunction.Approximation.EXACT, x, outputs);
+			scalar.activate(function, ActivationFunction.Approximation.EXACT, y, outputs);
+			assertArrayEquals(y, x, 1e-12, function.name());
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 awphi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ph.adamw.amazer.nnt3.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantileSketchTest {
+	@Test
+	void emptySketchHasNoQuantiles() {
+		assertTrue(Double.isNaN(new QuantileSketch().quantile(0.5)));
+	}
+
+	@Test
+	void quantilesAreWithinRelativeAccuracy() {
+		final Random random = new Random(9);
+		final QuantileSketch sketch = new QuantileSketch();
+		final double[] values = new double[20000];
+
+		// Spread over several orders of magnitude, both signs and some exact zeros
+		for(int i = 0; i < values.length; i ++) {
+			final double v = i % 50 == 0 ? 0 : Math.exp(random.nextGaussian() * 4) * (random.nextInt(4) == 0 ? -1 : 1);
+			values[i] = v;
+			sketch.add(v);
+		}
+
+		sketch.add(Double.NaN);
+		assertEquals(values.length, sketch.getCount());
+
+		Arrays.sort(values);
+
+		for(double q : new double[] {0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1}) {
+			final double exact = values[(int) Math.floor(q * (values.length - 1))];
+			assertEquals(exact, sketch.quantile(q), Math.abs(exact) * 0.01 + 1e-12, "q=" + q);
+		}
+	}
+}